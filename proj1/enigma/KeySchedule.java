@@ -0,0 +1,187 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static enigma.EnigmaException.error;
+
+/** An enumeration of all legal rotor arrangements of a machine, for
+ *  exhaustive testing.  A legal arrangement has a reflector in slot 0,
+ *  non-moving, non-reflecting rotors in the following fixed slots,
+ *  moving rotors in the last numPawls() slots, and no duplicates.
+ *
+ *  Arrangements are numbered from 0 to arrangements() - 1 by a mixed
+ *  radix system: the reflector, then the rank of the fixed rotors and of
+ *  the moving rotors, each an ordered choice (k-permutation) of its pool
+ *  numbered by its Lehmer code.  Any rank can be decoded directly, so
+ *  run() gives each thread its own contiguous range of ranks and the
+ *  threads need no coordination.  Pruning is by construction: rotors of
+ *  the wrong kind are never placed in a slot.
+ *  @author Chris Chi
+ */
+class KeySchedule {
+
+    /** Receives the arrangements and start positions to be evaluated.
+     *  Each thread of run() has its own Evaluator. */
+    interface Evaluator {
+        /** Evaluate a machine with rotors named ROTORS (as for
+         *  Machine.insertRotors) at SETTING (as for Machine.setRotors). */
+        void evaluate(String[] rotors, String setting);
+    }
+
+    /** An enumeration of the legal arrangements of MACHINE's rotors. */
+    KeySchedule(Machine machine) {
+        _numRotors = machine.numRotors();
+        _numMoving = machine.numPawls();
+        _numFixed = _numRotors - _numMoving - 1;
+        List<String> reflectors = new ArrayList<>(),
+            fixed = new ArrayList<>(), moving = new ArrayList<>();
+        for (Rotor rotor : machine.allRotors()) {
+            if (rotor.reflecting()) {
+                reflectors.add(rotor.name());
+            } else if (rotor.rotates()) {
+                moving.add(rotor.name());
+            } else {
+                fixed.add(rotor.name());
+            }
+        }
+        _reflectors = reflectors.toArray(new String[0]);
+        _fixed = fixed.toArray(new String[0]);
+        _moving = moving.toArray(new String[0]);
+        _fixedCount = permutations(_fixed.length, _numFixed);
+        _movingCount = permutations(_moving.length, _numMoving);
+        try {
+            _count = Math.multiplyExact(_reflectors.length,
+                         Math.multiplyExact(_fixedCount, _movingCount));
+        } catch (ArithmeticException excp) {
+            throw error("too many rotor arrangements");
+        }
+    }
+
+    /** Return the number of legal arrangements. */
+    long arrangements() {
+        return _count;
+    }
+
+    /** Set ROTORS, an array of numRotors() names, to the arrangement with
+     *  rank RANK, where 0 <= RANK < arrangements().  SCRATCH must have
+     *  length at least that of the largest rotor pool (the number of
+     *  fixed or moving rotors available). */
+    void arrangement(long rank, String[] rotors, int[] scratch) {
+        if (rank < 0 || rank >= _count) {
+            throw error("arrangement %d out of range", rank);
+        }
+        long moving = rank % _movingCount;
+        rank /= _movingCount;
+        long fixed = rank % _fixedCount;
+        rotors[0] = _reflectors[(int) (rank / _fixedCount)];
+        unrank(fixed, _fixed, _numFixed, rotors, 1, scratch);
+        unrank(moving, _moving, _numMoving, rotors, 1 + _numFixed, scratch);
+    }
+
+    /** Present each legal arrangement at each of SETTINGS to Evaluators
+     *  made by EVALUATORS, one per thread, using THREADS threads.  Returns
+     *  the number of arrangements evaluated (each at all the SETTINGS). */
+    long run(int threads, List<String> settings,
+             Supplier<Evaluator> evaluators) {
+        threads = (int) Math.max(1, Math.min(threads, _count));
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        long share = _count / threads, extra = _count % threads;
+        RuntimeException[] failure = new RuntimeException[1];
+        for (int t = 0; t < threads; t += 1) {
+            long lo = t * share + Math.min(t, extra),
+                hi = lo + share + (t < extra ? 1 : 0);
+            Evaluator evaluator = evaluators.get();
+            workers[t] = new Thread(() -> {
+                String[] rotors = new String[_numRotors];
+                int[] scratch = new int[Math.max(_fixed.length,
+                                                 _moving.length)];
+                try {
+                    for (long r = lo; r < hi; r += 1) {
+                        arrangement(r, rotors, scratch);
+                        for (String setting : settings) {
+                            evaluator.evaluate(rotors, setting);
+                        }
+                    }
+                } catch (RuntimeException excp) {
+                    synchronized (failure) {
+                        failure[0] = excp;
+                    }
+                }
+            }, "enigma-keyschedule-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+                throw error("interrupted");
+            }
+        }
+        _lastNanos = System.nanoTime() - start;
+        synchronized (failure) {
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        return _count;
+    }
+
+    /** Return the rate, in arrangements per second, of the last run(), or
+     *  0 if there has been none. */
+    double arrangementsPerSecond() {
+        return _lastNanos <= 0 ? 0.0 : _count * 1e9 / _lastNanos;
+    }
+
+    /** Return the number of ordered choices of K items from N, or 0 if
+     *  K > N. */
+    private static long permutations(int n, int k) {
+        long result = 1;
+        for (int i = 0; i < k; i += 1) {
+            try {
+                result = Math.multiplyExact(result, n - i);
+            } catch (ArithmeticException excp) {
+                throw error("too many rotor arrangements");
+            }
+        }
+        return Math.max(result, 0);
+    }
+
+    /** Store in RESULT[START .. START+K-1] the ordered choice of K items
+     *  from POOL with rank RANK, using SCRATCH to hold the indices of the
+     *  items not yet chosen. */
+    private static void unrank(long rank, String[] pool, int k,
+                               String[] result, int start, int[] scratch) {
+        int n = pool.length;
+        for (int i = 0; i < n; i += 1) {
+            scratch[i] = i;
+        }
+        long weight = permutations(n - 1, k - 1);
+        for (int j = 0; j < k; j += 1) {
+            int digit = (int) (rank / weight);
+            rank %= weight;
+            result[start + j] = pool[scratch[digit]];
+            System.arraycopy(scratch, digit + 1, scratch, digit,
+                             n - j - digit - 1);
+            if (j + 1 < k) {
+                weight /= n - j - 1;
+            }
+        }
+    }
+
+    /** Number of rotor slots. */
+    private final int _numRotors;
+    /** Number of fixed (non-reflector, non-moving) and moving slots. */
+    private final int _numFixed, _numMoving;
+    /** Names of the available reflectors, fixed, and moving rotors. */
+    private final String[] _reflectors, _fixed, _moving;
+    /** Number of ordered choices for the fixed and moving slots. */
+    private final long _fixedCount, _movingCount;
+    /** Number of legal arrangements. */
+    private final long _count;
+    /** Duration of the last run, in nanoseconds. */
+    private volatile long _lastNanos;
+}
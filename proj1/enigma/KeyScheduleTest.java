@@ -0,0 +1,73 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the KeySchedule class.
+ *  @author Chris Chi
+ */
+public class KeyScheduleTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a 5-slot, 3-pawl machine with all the naval rotors. */
+    private Machine navalMachine() {
+        List<Rotor> rotors = new ArrayList<>();
+        for (String name : NAVALA.keySet()) {
+            Permutation perm = new Permutation(NAVALA.get(name), UPPER);
+            if (name.length() == 1 && "BC".contains(name)) {
+                rotors.add(new Reflector(name, perm));
+            } else if (name.equals("Beta") || name.equals("Gamma")) {
+                rotors.add(new FixedRotor(name, perm));
+            } else {
+                rotors.add(new MovingRotor(name, perm, "Z"));
+            }
+        }
+        return new Machine(UPPER, 5, 3, rotors);
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkArrangements() {
+        Machine machine = navalMachine();
+        KeySchedule schedule = new KeySchedule(machine);
+        assertEquals(2 * 2 * 8 * 7 * 6, schedule.arrangements());
+        Set<List<String>> seen = new HashSet<>();
+        String[] rotors = new String[5];
+        int[] scratch = new int[8];
+        for (long r = 0; r < schedule.arrangements(); r += 1) {
+            schedule.arrangement(r, rotors, scratch);
+            machine.insertRotors(rotors);
+            assertTrue(seen.add(Arrays.asList(rotors.clone())));
+        }
+    }
+
+    @Test
+    public void checkRun() {
+        KeySchedule schedule = new KeySchedule(navalMachine());
+        Set<String> seen = Collections.synchronizedSet(new HashSet<>());
+        long n = schedule.run(4, Arrays.asList("AAAA", "ZZZZ"),
+            () -> (rotors, setting) ->
+                  seen.add(String.join(" ", rotors) + " " + setting));
+        assertEquals(schedule.arrangements(), n);
+        assertEquals(2 * n, seen.size());
+        assertTrue(schedule.arrangementsPerSecond() > 0);
+    }
+
+}
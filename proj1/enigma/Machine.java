@@ -1,7 +1,10 @@
 package enigma;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 /** Class that represents a complete enigma machine.
@@ -31,6 +34,16 @@ class Machine {
         return _numPawls;
     }
 
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return all the rotors available to me. */
+    Collection<Rotor> allRotors() {
+        return _allRotors;
+    }
+
     /** Set my rotor slots to the rotors named ROTORS from my set of
      *  available rotors (ROTORS[0] names the reflector).
      *  Initially, all rotors are set at their 0 setting. */
@@ -62,6 +75,12 @@ class Machine {
             }
 
         }
+        StringBuilder selection = new StringBuilder();
+        for (Rotor rotor : _rotors) {
+            selection.append(rotor.name()).append(' ');
+        }
+        _selection = _selections.computeIfAbsent(selection.toString(),
+                                                 k -> _selections.size());
     }
 
     private Rotor findRotorByName(String rotorName) {
@@ -100,7 +119,18 @@ class Machine {
      *  index in the range 0..alphabet size - 1), after first advancing
      *  the machine. */
     int convert(int c) {
-        //advance
+        advance();
+        if (Metrics.ENABLED) {
+            Metrics.METRICS.converted();
+        }
+        if (_cache != null) {
+            return _plugboard.invert(cachedTable()[_plugboard.permute(c)]);
+        }
+        return map(c);
+    }
+
+    /** Advance my rotors one position, as before each conversion. */
+    private void advance() {
         boolean[] canMove = new boolean[_numRotors];
         canMove[_numRotors - 1] = true;
         for (int i = _rotors.length - 1; i >= 0; i--) {
@@ -115,30 +145,148 @@ class Machine {
         for (int i = 0; i < canMove.length; i++) {
             if (canMove[i]) {
                 _rotors[i].advance();
+                if (Metrics.ENABLED) {
+                    Metrics.METRICS.stepped(i);
+                }
             }
         }
-        //
-        int currIndex = _plugboard.permute(c);
+    }
+
+    /** Return the result of passing C through my plugboard and rotors in
+     *  their current positions, without advancing them. */
+    private int map(int c) {
+        return _plugboard.invert(mapRotors(_plugboard.permute(c)));
+    }
+
+    /** Return the result of passing C through my rotors (but not my
+     *  plugboard) in their current positions. */
+    private int mapRotors(int c) {
+        int currIndex = c;
         for (int i = _rotors.length - 1; i >= 0; i--) {
             currIndex = _rotors[i].convertForward(currIndex);
         }
         for (int i = 1; i < _rotors.length; i++) {
             currIndex = _rotors[i].convertBackward(currIndex);
         }
-        return _plugboard.invert(currIndex);
+        return currIndex;
+    }
+
+    /** Cache the rotor substitution tables of recently used rotor
+     *  selections and positions, using at most about MAXBYTES bytes.  Each
+     *  character converted at a cached position then costs one table
+     *  lookup plus the plugboard.  The least recently used tables are
+     *  discarded first.  MAXBYTES <= 0 disables (and empties) the cache. */
+    void setCacheSize(long maxBytes) {
+        _cacheHits = _cacheMisses = 0;
+        _spareTable = null;
+        if (maxBytes <= 0) {
+            _cache = null;
+            return;
+        }
+        long positions = 1;
+        for (int i = 1; i < _numRotors; i += 1) {
+            positions = Math.multiplyExact(positions, _alphabet.size());
+        }
+        if (positions > Long.MAX_VALUE >> 24) {
+            throw EnigmaException.error("too many rotor positions to cache");
+        }
+        _positions = positions;
+        final long maxEntries = Math.max(1, maxBytes / cacheEntryBytes());
+        _cache = new LinkedHashMap<Long, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> e) {
+                if (size() > maxEntries) {
+                    _spareTable = e.getValue();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** Return the substitution table of my rotors at their current
+     *  selection and positions, from my cache if possible. */
+    private int[] cachedTable() {
+        long key = 0;
+        for (int i = 1; i < _numRotors; i += 1) {
+            key = key * _alphabet.size() + _rotors[i].setting();
+        }
+        key += _selection * _positions;
+        int[] table = _cache.get(key);
+        if (table != null) {
+            _cacheHits += 1;
+            return table;
+        }
+        _cacheMisses += 1;
+        table = _spareTable != null ? _spareTable : new int[_alphabet.size()];
+        _spareTable = null;
+        for (int c = 0; c < table.length; c += 1) {
+            table[c] = mapRotors(c);
+        }
+        _cache.put(key, table);
+        return table;
+    }
+
+    /** Return the approximate number of bytes used by one cache entry:
+     *  its table, boxed key, and hash-map entry. */
+    private long cacheEntryBytes() {
+        return 16 + 4L * _alphabet.size() + 24 + 40;
+    }
+
+    /** Return the fraction of cached conversions whose table was found in
+     *  the cache, or 0 if there have been none. */
+    double cacheHitRatio() {
+        long total = _cacheHits + _cacheMisses;
+        return total == 0 ? 0.0 : (double) _cacheHits / total;
+    }
+
+    /** Return the approximate number of bytes my cache currently uses. */
+    long cacheBytes() {
+        return _cache == null ? 0 : _cache.size() * cacheEntryBytes();
+    }
+
+    /** Return a one-line summary of my statistics. */
+    String statistics() {
+        if (_cache == null) {
+            return "cache: disabled";
+        }
+        return String.format("cache: %d hits, %d misses (%.1f%% hit ratio),"
+                             + " %d entries, ~%d bytes",
+                             _cacheHits, _cacheMisses, 100 * cacheHitRatio(),
+                             _cache.size(), cacheBytes());
+    }
+
+    /** Set RESULT, whose length must be my alphabet size, to the complete
+     *  permutation I apply to the next character, including the plugboard,
+     *  were my rotors not to advance first.  That is, RESULT[c] is the
+     *  conversion of c at my current rotor settings. */
+    void permutation(int[] result) {
+        for (int c = 0; c < _alphabet.size(); c += 1) {
+            result[c] = map(c);
+        }
     }
 
     /** Returns the encoding/decoding of MSG, updating the state of
      *  the rotors accordingly. */
     String convert(String msg) {
-        msg = msg.replaceAll("\\s+", "").toUpperCase();
-        char[] chars = new char[msg.length()];
-        for (int i = 0; i < msg.length(); i++) {
-            chars[i] = _alphabet.toChar(convert(_alphabet.toInt(msg.charAt(i))));
-        }
+        char[] chars = msg.replaceAll("\\s+", "").toUpperCase().toCharArray();
+        convert(chars, chars.length);
         return new String(chars);
     }
 
+    /** Replace the first LENGTH characters of MSG, which must be in my
+     *  alphabet, by their encoding/decoding, updating the state of the
+     *  rotors accordingly. */
+    void convert(char[] msg, int length) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        for (int i = 0; i < length; i++) {
+            msg[i] = _alphabet.toChar(convert(_alphabet.toInt(msg[i])));
+        }
+        if (Metrics.ENABLED) {
+            Metrics.METRICS.message(System.nanoTime() - start);
+        }
+    }
+
     /** Common alphabet of my rotors. */
     private final Alphabet _alphabet;
 
@@ -154,4 +302,25 @@ class Machine {
     private Permutation _plugboard;
 
     private String _setting;
+
+    /** Identifying numbers of the rotor selections I have used, keyed by
+     *  their rotor names. */
+    private final Map<String, Integer> _selections = new HashMap<>();
+
+    /** Identifying number of my current rotor selection. */
+    private int _selection;
+
+    /** Cached rotor substitution tables keyed by rotor selection and
+     *  positions, in least-recently-used order, or null if caching is
+     *  off. */
+    private LinkedHashMap<Long, int[]> _cache;
+
+    /** Number of distinct rotor position tuples. */
+    private long _positions;
+
+    /** A table evicted from _cache, available for reuse, or null. */
+    private int[] _spareTable;
+
+    /** Cache lookups that succeeded and failed. */
+    private long _cacheHits, _cacheMisses;
 }
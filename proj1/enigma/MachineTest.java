@@ -0,0 +1,94 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Machine class.
+ *  @author Chris Chi
+ */
+public class MachineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a 5-slot, 3-pawl machine with the naval rotors, set up with
+     *  rotors B BETA I II III at SETTING and an empty plugboard. */
+    private Machine navalMachine(String setting) {
+        List<Rotor> rotors = new ArrayList<>();
+        rotors.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        rotors.add(new FixedRotor("Beta",
+                                  new Permutation(NAVALA.get("Beta"), UPPER)));
+        rotors.add(new MovingRotor("I",
+                                   new Permutation(NAVALA.get("I"), UPPER),
+                                   "Q"));
+        rotors.add(new MovingRotor("II",
+                                   new Permutation(NAVALA.get("II"), UPPER),
+                                   "E"));
+        rotors.add(new MovingRotor("III",
+                                   new Permutation(NAVALA.get("III"), UPPER),
+                                   "V"));
+        Machine machine = new Machine(UPPER, 5, 3, rotors);
+        machine.insertRotors(new String[] { "B", "Beta", "I", "II", "III" });
+        machine.setRotors(setting);
+        machine.setPlugboard(new Permutation("", UPPER));
+        return machine;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void checkConvert() {
+        Machine machine = navalMachine("AAAA");
+        assertEquals("ILBDAAMTAZ", machine.convert("Hello world"));
+    }
+
+    @Test
+    public void checkPermutation() {
+        int[] table = new int[26];
+        navalMachine("AXLF").permutation(table);
+        for (int c = 0; c < 26; c += 1) {
+            assertEquals(msg("AXLF", "wrong image of %d", c),
+                         navalMachine("AXLE").convert(c), table[c]);
+            assertNotEquals(c, table[c]);
+            assertEquals(msg("AXLF", "not an involution at %d", c),
+                         c, table[table[c]]);
+        }
+    }
+
+    @Test
+    public void checkCache() {
+        String msg = "FROMHISSHOULDERHIAWATHATOOKTHECAMERAOFROSEWOOD";
+        String expected = navalMachine("AXLE").convert(msg);
+        Machine machine = navalMachine("AXLE");
+        machine.setCacheSize(1 << 20);
+        assertEquals(expected, machine.convert(msg));
+        assertEquals(0.0, machine.cacheHitRatio(), 1e-9);
+        machine.setRotors("AXLE");
+        assertEquals(expected, machine.convert(msg));
+        assertEquals(0.5, machine.cacheHitRatio(), 1e-9);
+        assertTrue(machine.cacheBytes() > 0);
+    }
+
+    @Test
+    public void checkCacheEviction() {
+        String msg = "FROMHISSHOULDERHIAWATHATOOKTHECAMERAOFROSEWOOD";
+        String expected = navalMachine("AXLE").convert(msg);
+        Machine machine = navalMachine("AXLE");
+        machine.setCacheSize(1);
+        assertEquals(expected, machine.convert(msg));
+        machine.setRotors("AXLE");
+        assertEquals(expected, machine.convert(msg));
+        assertEquals(0.0, machine.cacheHitRatio(), 1e-9);
+    }
+
+}
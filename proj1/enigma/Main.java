@@ -7,6 +7,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import static enigma.EnigmaException.error;
 
@@ -66,14 +68,19 @@ public final class Main {
      * input.  ARGS[2] is optional; when present, it names an output
      * file for processed messages.  Otherwise, output goes to the
      * standard output. Exits normally if there are no errors in the input;
-     * otherwise with code 1.
+     * otherwise with code 1.  The system property enigma.cache, if set,
+     * gives the number of bytes of rotor-position tables to cache (see
+     * Machine.setCacheSize).
      */
     public static void main(String... args) {
+        Metrics.start();
         try {
             new Main(args).process();
             return;
         } catch (EnigmaException excp) {
             System.err.printf("Error: %s%n", excp.getMessage());
+        } finally {
+            Metrics.stop();
         }
         System.exit(1);
     }
@@ -103,30 +110,128 @@ public final class Main {
     /**
      * Configure an Enigma machine from the contents of configuration
      * file _config and apply it to the messages in _input, sending the
-     * results to _output.
+     * results to _output.  Reading, conversion, and output proceed
+     * concurrently in three stages (see readStage, convertStage, and
+     * writeStage) that pass reusable Chunks through bounded queues, so
+     * that I/O overlaps conversion.  Output order is that of the input.
      */
     private void process() {
         Machine machine = readConfig();
-        String setting = null;
-        if (_input.hasNext()) {
-            setting = _input.nextLine();
-            if (setting.startsWith("*")) {
-                setUp(machine, setting);
+        machine.setCacheSize(Long.getLong("enigma.cache", 0));
+        for (int i = 0; i < PIPELINE_CHUNKS; i += 1) {
+            _free.add(new Chunk());
+        }
+        startStage("enigma-reader", this::readStage);
+        startStage("enigma-converter", () -> convertStage(machine));
+        writeStage();
+        if (Metrics.ENABLED) {
+            System.err.printf("enigma: %s%n", machine.statistics());
+        }
+    }
+
+    /**
+     * Start a daemon thread named NAME that runs STAGE.
+     */
+    private void startStage(String name, Runnable stage) {
+        Thread thread = new Thread(stage, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * First pipeline stage: read lines from _input into free Chunks,
+     * classifying each as settings or message, and pass them to
+     * _toConvert.  Messages have their whitespace removed and are
+     * converted to upper case.  Ends with a Chunk marked _end, or with
+     * one holding an _error.
+     */
+    private void readStage() {
+        try {
+            boolean first = true;
+            while (first ? _input.hasNext() : _input.hasNextLine()) {
+                String line = _input.nextLine();
+                if (first && !line.startsWith("*")) {
+                    break;
+                }
+                first = false;
+                Chunk chunk = _free.take();
+                if (line.startsWith("*")) {
+                    chunk.setSettings(line);
+                } else {
+                    chunk.setMessage(line);
+                }
+                _toConvert.put(chunk);
+            }
+            Chunk last = _free.take();
+            if (first) {
+                last.setError(error("Input must begin with settings"));
             } else {
-                setting = null;
+                last.setEnd();
             }
+            _toConvert.put(last);
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException excp) {
+            Chunk last = new Chunk();
+            last.setError(excp);
+            _toConvert.add(last);
         }
-        if (setting == null) {
-            throw error("Input must begin with settings");
+    }
+
+    /**
+     * Second pipeline stage: apply each Chunk from _toConvert to MACHINE,
+     * setting it up from settings Chunks and converting message Chunks in
+     * place, and pass the message, end, and error Chunks on to _toWrite.
+     * An error in setting up or converting ends the stage with an error
+     * Chunk.
+     */
+    private void convertStage(Machine machine) {
+        try {
+            while (true) {
+                Chunk chunk = _toConvert.take();
+                try {
+                    if (chunk._settings != null) {
+                        setUp(machine, chunk._settings);
+                        _free.put(chunk);
+                        continue;
+                    }
+                    if (!chunk._end && chunk._error == null) {
+                        machine.convert(chunk._chars, chunk._length);
+                    }
+                } catch (RuntimeException excp) {
+                    chunk.setError(excp);
+                }
+                _toWrite.put(chunk);
+                if (chunk._end || chunk._error != null) {
+                    return;
+                }
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
         }
-        while (_input.hasNextLine()) {
-            String next = _input.nextLine();
-            if (next.startsWith("*")) {
-                setUp(machine, next);
-            } else {
-                String convert = machine.convert(next);
-                printMessageLine(convert);
+    }
+
+    /**
+     * Final pipeline stage, run on the calling thread: print each message
+     * Chunk from _toWrite in groups of five and recycle it, until the end.
+     * Rethrows any error passed down the pipeline once everything before
+     * it has been printed.
+     */
+    private void writeStage() {
+        try {
+            while (true) {
+                Chunk chunk = _toWrite.take();
+                if (chunk._error != null) {
+                    throw chunk._error;
+                } else if (chunk._end) {
+                    return;
+                }
+                printMessageLine(chunk._chars, chunk._length);
+                _free.put(chunk);
             }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw error("interrupted");
         }
     }
 
@@ -135,6 +240,7 @@ public final class Main {
      * file _config.
      */
     private Machine readConfig() {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
         try {
             checkConfigNext("alphabet");
             String[] alphabet = _config.nextLine().toUpperCase().split("-");
@@ -161,6 +267,10 @@ public final class Main {
             return new Machine(_alphabet, rotorNum, pawlNum, rotors);
         } catch (NoSuchElementException excp) {
             throw error("configuration file truncated");
+        } finally {
+            if (Metrics.ENABLED) {
+                Metrics.METRICS.readConfig(System.nanoTime() - start);
+            }
         }
     }
 
@@ -204,6 +314,7 @@ public final class Main {
      * which must have the format specified in the assignment.
      */
     private void setUp(Machine M, String settings) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
         String[] arr = settings.split(" ");
         if (arr.length < M.numRotors() + 2) {
             throw error("wrong settings format");
@@ -217,22 +328,128 @@ public final class Main {
             cycleBuilder.append(arr[i]);
         }
         M.setPlugboard(new Permutation(cycleBuilder.toString(), _alphabet));
+        if (Metrics.ENABLED) {
+            Metrics.METRICS.setUp(System.nanoTime() - start);
+        }
     }
 
     /**
-     * Print MSG in groups of five (except that the last group may
-     * have fewer letters).
+     * Print the first LENGTH characters of MSG in groups of five (except
+     * that the last group may have fewer letters).
      */
-    private void printMessageLine(String msg) {
-        if (msg.length() == 0) {
-            _output.println();
+    private void printMessageLine(char[] msg, int length) {
+        _line.setLength(0);
+        for (int i = 0; i < length; i += 1) {
+            if (i > 0 && i % 5 == 0) {
+                _line.append(' ');
+            }
+            _line.append(msg[i]);
         }
-        for (int i = 0; i < msg.length(); i += 5) {
-            if (i + 5 >= msg.length()) {
-                _output.println(msg.substring(i));
-            } else {
-                _output.print(msg.substring(i, i + 5) +" ");
+        _output.println(_line);
+    }
+
+    /**
+     * A reusable buffer holding one input line as it passes through the
+     * pipeline: a settings line, a message, the end of input, or an error.
+     */
+    private static final class Chunk {
+
+        /**
+         * Make me hold settings line LINE.
+         */
+        void setSettings(String line) {
+            clear();
+            _settings = line;
+        }
+
+        /**
+         * Make me hold the characters of message line LINE, less
+         * whitespace and converted to upper case.
+         */
+        void setMessage(String line) {
+            clear();
+            if (_chars.length < line.length()) {
+                _chars = new char[Math.max(line.length(), 2 * _chars.length)];
             }
+            for (int i = 0; i < line.length(); i += 1) {
+                char c = line.charAt(i);
+                if (!Character.isWhitespace(c)) {
+                    _chars[_length++] = Character.toUpperCase(c);
+                }
+            }
+        }
+
+        /**
+         * Make me mark the end of input.
+         */
+        void setEnd() {
+            clear();
+            _end = true;
+        }
+
+        /**
+         * Make me carry ERR.
+         */
+        void setError(RuntimeException err) {
+            clear();
+            _error = err;
+        }
+
+        /**
+         * Make me empty.
+         */
+        private void clear() {
+            _settings = null;
+            _length = 0;
+            _end = false;
+            _error = null;
         }
+
+        /**
+         * Settings line, or null if I do not hold one.
+         */
+        private String _settings;
+        /**
+         * Message characters: the first _length characters of _chars.
+         */
+        private char[] _chars = new char[128];
+        /**
+         * Number of valid characters in _chars.
+         */
+        private int _length;
+        /**
+         * True iff I mark the end of input.
+         */
+        private boolean _end;
+        /**
+         * The error I carry, or null.
+         */
+        private RuntimeException _error;
     }
-}
\ No newline at end of file
+
+    /**
+     * Number of Chunks circulating in the pipeline.  Each queue can hold
+     * all of them, so a stage blocks only while waiting for input.
+     */
+    private static final int PIPELINE_CHUNKS = 64;
+
+    /**
+     * Empty Chunks available to the reader.
+     */
+    private final BlockingQueue<Chunk> _free =
+        new ArrayBlockingQueue<>(PIPELINE_CHUNKS);
+    /**
+     * Chunks read and awaiting conversion.
+     */
+    private final BlockingQueue<Chunk> _toConvert =
+        new ArrayBlockingQueue<>(PIPELINE_CHUNKS);
+    /**
+     * Chunks converted and awaiting output.
+     */
+    private final BlockingQueue<Chunk> _toWrite =
+        new ArrayBlockingQueue<>(PIPELINE_CHUNKS);
+    /**
+     * Buffer for formatting output lines.
+     */
+    private final StringBuilder _line = new StringBuilder();
+}
@@ -0,0 +1,263 @@
+package enigma;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/** Runtime counters and latency histograms for the enigma package.
+ *  Collection is switched on by the system property enigma.metrics
+ *  (e.g., java -Denigma.metrics=true enigma.Main ...).  Because ENABLED
+ *  is a static final constant, the JIT removes every guarded recording
+ *  call when metrics are off.  When on, the counters are published as
+ *  the MBean enigma:type=Metrics and, if enigma.metrics.period is a
+ *  positive number of seconds, summarized periodically on the standard
+ *  error.
+ *  @author Chris Chi
+ */
+final class Metrics implements MetricsMBean {
+
+    /** True iff metrics are being collected. */
+    static final boolean ENABLED = Boolean.getBoolean("enigma.metrics");
+
+    /** The single collection of metrics for this program. */
+    static final Metrics METRICS = new Metrics();
+
+    /** The maximum number of rotor slots whose steps are counted
+     *  separately.  Steps of higher slots are counted in the last one. */
+    static final int MAX_SLOTS = 16;
+
+    /** Name under which I am registered with the platform MBean server. */
+    static final String MBEAN_NAME = "enigma:type=Metrics";
+
+    /** Start publishing metrics, if ENABLED: register the MBean and start
+     *  the periodic summary, if one is requested. */
+    static void start() {
+        if (!ENABLED) {
+            return;
+        }
+        METRICS._startNanos = System.nanoTime();
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(METRICS, new ObjectName(MBEAN_NAME));
+        } catch (JMException excp) {
+            System.err.printf("Warning: metrics MBean not registered: %s%n",
+                              excp.getMessage());
+        }
+        long period = Long.getLong("enigma.metrics.period", 0);
+        if (period > 0) {
+            ScheduledExecutorService reporter =
+                Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "enigma-metrics");
+                    t.setDaemon(true);
+                    return t;
+                });
+            reporter.scheduleAtFixedRate(() -> METRICS.report(System.err),
+                                         period, period, TimeUnit.SECONDS);
+            METRICS._reporter = reporter;
+        }
+    }
+
+    /** Stop publishing metrics and print a final summary, if ENABLED. */
+    static void stop() {
+        if (!ENABLED) {
+            return;
+        }
+        if (METRICS._reporter != null) {
+            METRICS._reporter.shutdownNow();
+            METRICS._reporter = null;
+        }
+        METRICS.report(System.err);
+    }
+
+    /** Record one character converted. */
+    void converted() {
+        _characters.increment();
+    }
+
+    /** Record one advance of the rotor in SLOT. */
+    void stepped(int slot) {
+        _steps[Math.min(slot, MAX_SLOTS - 1)].increment();
+    }
+
+    /** Record the conversion of one message line in NANOS nanoseconds. */
+    void message(long nanos) {
+        _messages.increment();
+        _convert.record(nanos);
+    }
+
+    /** Record one settings line applied in NANOS nanoseconds. */
+    void setUp(long nanos) {
+        _settings.increment();
+        _setUp.record(nanos);
+    }
+
+    /** Record one configuration read in NANOS nanoseconds. */
+    void readConfig(long nanos) {
+        _readConfig.record(nanos);
+    }
+
+    /** Print a one-line summary of my values on OUT. */
+    void report(PrintStream out) {
+        out.printf("enigma: %d chars (%.0f/s), %d messages, %d settings;"
+                   + " config %.3f ms, setUp %.3f ms, convert %.3f ms"
+                   + " (p50 %d ns, p99 %d ns)%n",
+                   getCharactersConverted(), getCharactersPerSecond(),
+                   getMessages(), getSettingsChanges(),
+                   getReadConfigNanos() / 1e6, getSetUpNanos() / 1e6,
+                   getConvertNanos() / 1e6, getConvertMedianNanos(),
+                   getConvertP99Nanos());
+    }
+
+    @Override
+    public long getCharactersConverted() {
+        return _characters.sum();
+    }
+
+    @Override
+    public long getMessages() {
+        return _messages.sum();
+    }
+
+    @Override
+    public long getSettingsChanges() {
+        return _settings.sum();
+    }
+
+    @Override
+    public long getReadConfigNanos() {
+        return _readConfig.total();
+    }
+
+    @Override
+    public long getSetUpNanos() {
+        return _setUp.total();
+    }
+
+    @Override
+    public long getConvertNanos() {
+        return _convert.total();
+    }
+
+    @Override
+    public long getConvertMedianNanos() {
+        return _convert.percentile(0.5);
+    }
+
+    @Override
+    public long getConvertP99Nanos() {
+        return _convert.percentile(0.99);
+    }
+
+    @Override
+    public long[] getRotorSteps() {
+        long[] result = new long[MAX_SLOTS];
+        for (int i = 0; i < MAX_SLOTS; i += 1) {
+            result[i] = _steps[i].sum();
+        }
+        return result;
+    }
+
+    @Override
+    public double getCharactersPerSecond() {
+        long elapsed = System.nanoTime() - _startNanos;
+        if (elapsed <= 0) {
+            return 0.0;
+        }
+        return getCharactersConverted() * 1e9 / elapsed;
+    }
+
+    /** A histogram of durations with one bucket per power of two
+     *  nanoseconds. */
+    static final class Histogram {
+
+        /** Number of buckets: enough for any non-negative long. */
+        private static final int BUCKETS = 64;
+
+        /** A new, empty histogram. */
+        Histogram() {
+            for (int i = 0; i < BUCKETS; i += 1) {
+                _buckets[i] = new LongAdder();
+            }
+        }
+
+        /** Add a sample of NANOS nanoseconds. */
+        void record(long nanos) {
+            nanos = Math.max(nanos, 0);
+            int k = nanos == 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+            _buckets[k].increment();
+            _total.add(nanos);
+        }
+
+        /** Return the sum of all samples. */
+        long total() {
+            return _total.sum();
+        }
+
+        /** Return the number of samples. */
+        long count() {
+            long n = 0;
+            for (LongAdder bucket : _buckets) {
+                n += bucket.sum();
+            }
+            return n;
+        }
+
+        /** Return an upper bound on the FRACTION (0 .. 1) quantile of
+         *  the samples, or 0 if there are none. */
+        long percentile(double fraction) {
+            long n = count();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(fraction * n);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i += 1) {
+                seen += _buckets[i].sum();
+                if (seen >= rank) {
+                    return (1L << (i + 1)) - 1;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /** Bucket K counts samples in the range [2**K, 2**(K+1)), except
+         *  that bucket 0 also counts 0. */
+        private final LongAdder[] _buckets = new LongAdder[BUCKETS];
+
+        /** Sum of all samples. */
+        private final LongAdder _total = new LongAdder();
+    }
+
+    /** A new set of metrics, all zero. */
+    private Metrics() {
+        for (int i = 0; i < MAX_SLOTS; i += 1) {
+            _steps[i] = new LongAdder();
+        }
+        _startNanos = System.nanoTime();
+    }
+
+    /** Characters converted. */
+    private final LongAdder _characters = new LongAdder();
+    /** Message lines converted. */
+    private final LongAdder _messages = new LongAdder();
+    /** Settings lines applied. */
+    private final LongAdder _settings = new LongAdder();
+    /** Advances of the rotor in each slot. */
+    private final LongAdder[] _steps = new LongAdder[MAX_SLOTS];
+    /** Durations of configuration reads. */
+    private final Histogram _readConfig = new Histogram();
+    /** Durations of settings lines. */
+    private final Histogram _setUp = new Histogram();
+    /** Durations of message line conversions. */
+    private final Histogram _convert = new Histogram();
+    /** Time at which collection started. */
+    private volatile long _startNanos;
+    /** Periodic summary task, or null. */
+    private ScheduledExecutorService _reporter;
+}
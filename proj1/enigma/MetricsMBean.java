@@ -0,0 +1,43 @@
+package enigma;
+
+/** The JMX management interface of the enigma runtime Metrics.  All times
+ *  are in nanoseconds.
+ *  @author Chris Chi
+ */
+public interface MetricsMBean {
+
+    /** Return the number of characters converted so far. */
+    long getCharactersConverted();
+
+    /** Return the number of message lines converted so far. */
+    long getMessages();
+
+    /** Return the number of settings lines applied so far. */
+    long getSettingsChanges();
+
+    /** Return the total time spent reading configurations. */
+    long getReadConfigNanos();
+
+    /** Return the total time spent applying settings lines. */
+    long getSetUpNanos();
+
+    /** Return the total time spent converting message lines. */
+    long getConvertNanos();
+
+    /** Return an upper bound on the median time to convert one message
+     *  line. */
+    long getConvertMedianNanos();
+
+    /** Return an upper bound on the 99th percentile time to convert one
+     *  message line. */
+    long getConvertP99Nanos();
+
+    /** Return the number of times the rotor in each slot has advanced,
+     *  indexed by slot (slot 0 holds the reflector). */
+    long[] getRotorSteps();
+
+    /** Return the mean conversion rate in characters per second since the
+     *  metrics were started. */
+    double getCharactersPerSecond();
+
+}
@@ -21,6 +21,12 @@ class Permutation {
         for (String str : cycles.replaceAll("\\s+", "").split("\\)\\(")) {
             addCycle(str.replace("(", "").replace(")", ""));
         }
+        _forward = new int[size()];
+        _backward = new int[size()];
+        for (int i = 0; i < size(); i += 1) {
+            _forward[i] = alphabet().toInt(permute(alphabet().toChar(i)));
+            _backward[_forward[i]] = i;
+        }
     }
 
     /** Add the cycle c0->c1->...->cm->c0 to the permutation, where CYCLE is
@@ -56,13 +62,13 @@ class Permutation {
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        return alphabet().toInt(permute(_alphabet.toChar(wrap(p))));
+        return _forward[wrap(p)];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        return alphabet().toInt(invert(alphabet().toChar(wrap(c))));
+        return _backward[wrap(c)];
     }
 
     /** Return the result of applying this permutation to the index of P
@@ -87,10 +93,119 @@ class Permutation {
         return _cycles.size() == size();
     }
 
+    /** Copy my mapping into RESULT, so that RESULT[i] == permute(i) for
+     *  0 <= i < size(). */
+    void table(int[] result) {
+        System.arraycopy(_forward, 0, result, 0, size());
+    }
+
+    /** Store my cycle type in COUNTS (see cycleType(int[], int[],
+     *  boolean[])) and return my number of cycles. */
+    int cycleType(int[] counts) {
+        return cycleType(_forward, counts, new boolean[size()]);
+    }
+
+    /* The static methods below operate on permutations of 0 .. N-1
+     * represented as tables P, where P[i] is the image of i and N is the
+     * length of P.  They store their results in caller-supplied arrays
+     * of the same length, which must not be the same as any argument,
+     * and allocate nothing. */
+
+    /** Set RESULT to the permutation that applies FIRST and then
+     *  SECOND, so that RESULT[i] == SECOND[FIRST[i]]. */
+    static void compose(int[] first, int[] second, int[] result) {
+        for (int i = 0; i < first.length; i += 1) {
+            result[i] = second[first[i]];
+        }
+    }
+
+    /** Set RESULT to the inverse of P. */
+    static void inverse(int[] p, int[] result) {
+        for (int i = 0; i < p.length; i += 1) {
+            result[p[i]] = i;
+        }
+    }
+
+    /** Set RESULT to P applied K times, where K may be negative or
+     *  zero.  Takes time linear in the length of P, regardless of K. */
+    static void pow(int[] p, int k, int[] result) {
+        int n = p.length;
+        for (int i = 0; i < n; i += 1) {
+            result[i] = -1;
+        }
+        for (int i = 0; i < n; i += 1) {
+            if (result[i] >= 0) {
+                continue;
+            }
+            int len = 1;
+            for (int j = p[i]; j != i; j = p[j]) {
+                len += 1;
+            }
+            int shift = k % len;
+            if (shift < 0) {
+                shift += len;
+            }
+            int target = i;
+            for (int s = 0; s < shift; s += 1) {
+                target = p[target];
+            }
+            int j = i;
+            do {
+                result[j] = target;
+                j = p[j];
+                target = p[target];
+            } while (j != i);
+        }
+    }
+
+    /** Set RESULT to the conjugate of P by G, that is G P G^-1 or the
+     *  permutation with RESULT[G[i]] == G[P[i]].  This is P with its
+     *  elements relabeled by G, and has the same cycle type as P. */
+    static void conjugate(int[] p, int[] g, int[] result) {
+        for (int i = 0; i < p.length; i += 1) {
+            result[g[i]] = g[p[i]];
+        }
+    }
+
+    /** Set COUNTS[k] to the number of cycles of length k in P, for
+     *  1 <= k <= P.length, and return the total number of cycles.
+     *  COUNTS must have length at least P.length + 1; COUNTS[0] is set
+     *  to 0.  SEEN, of length P.length, is scratch space for marking
+     *  the elements already counted.  Each cycle is walked once, from
+     *  its first element not yet seen, so this takes time proportional
+     *  to P.length. */
+    static int cycleType(int[] p, int[] counts, boolean[] seen) {
+        int n = p.length;
+        for (int k = 0; k <= n; k += 1) {
+            counts[k] = 0;
+        }
+        for (int i = 0; i < n; i += 1) {
+            seen[i] = false;
+        }
+        int cycles = 0;
+        for (int i = 0; i < n; i += 1) {
+            if (seen[i]) {
+                continue;
+            }
+            int len = 0;
+            for (int j = i; !seen[j]; j = p[j]) {
+                seen[j] = true;
+                len += 1;
+            }
+            counts[len] += 1;
+            cycles += 1;
+        }
+        return cycles;
+    }
+
     /** Alphabet of this permutation. */
     private Alphabet _alphabet;
 
     // ADDITIONAL FIELDS HERE, AS NEEDED
     Map<Character, Character> _cycles;
     Map<Character, Character> _inverse;
+
+    /** My mapping and its inverse, as tables indexed by alphabet
+     *  position. */
+    private final int[] _forward, _backward;
 }
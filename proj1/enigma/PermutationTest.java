@@ -51,4 +51,95 @@ public class PermutationTest {
         checkPerm("identity", UPPER_STRING, UPPER_STRING);
     }
 
+    @Test
+    public void checkTable() {
+        perm = new Permutation(NAVALA.get("I"), UPPER);
+        int[] table = new int[26];
+        perm.table(table);
+        for (int i = 0; i < 26; i += 1) {
+            assertEquals(alpha.indexOf(NAVALA_MAP.get("I").charAt(i)),
+                         table[i]);
+        }
+    }
+
+    @Test
+    public void checkComposeInverse() {
+        int[] p = new int[26], q = new int[26], r = new int[26];
+        new Permutation(NAVALA.get("II"), UPPER).table(p);
+        Permutation.inverse(p, q);
+        Permutation.compose(p, q, r);
+        for (int i = 0; i < 26; i += 1) {
+            assertEquals(i, r[i]);
+        }
+        new Permutation(NAVALA.get("III"), UPPER).table(q);
+        Permutation.compose(p, q, r);
+        for (int i = 0; i < 26; i += 1) {
+            assertEquals(q[p[i]], r[i]);
+        }
+    }
+
+    @Test
+    public void checkPow() {
+        int[] p = new int[26], r = new int[26], s = new int[26];
+        new Permutation(NAVALA.get("I"), UPPER).table(p);
+        Permutation.pow(p, 0, r);
+        for (int i = 0; i < 26; i += 1) {
+            assertEquals(i, r[i]);
+        }
+        Permutation.pow(p, 3, r);
+        for (int i = 0; i < 26; i += 1) {
+            assertEquals(p[p[p[i]]], r[i]);
+        }
+        Permutation.pow(p, -1, r);
+        Permutation.inverse(p, s);
+        for (int i = 0; i < 26; i += 1) {
+            assertEquals(s[i], r[i]);
+        }
+        Permutation.pow(p, 60, r);
+        for (int i = 0; i < 26; i += 1) {
+            assertEquals("order of cycle type 10,4,4,3,2,2,1 divides 60",
+                         i, r[i]);
+        }
+    }
+
+    @Test
+    public void checkCycleType() {
+        int[] counts = new int[27];
+        perm = new Permutation(NAVALA.get("I"), UPPER);
+        assertEquals(7, perm.cycleType(counts));
+        assertEquals(1, counts[10]);
+        assertEquals(2, counts[4]);
+        assertEquals(1, counts[3]);
+        assertEquals(2, counts[2]);
+        assertEquals(1, counts[1]);
+
+        perm = new Permutation(NAVALA.get("B"), UPPER);
+        assertEquals(13, perm.cycleType(counts));
+        assertEquals(13, counts[2]);
+        int n = 100000;
+        int[] p = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            p[i] = (i + 1) % n;
+        }
+        int[] longCounts = new int[n + 1];
+        assertEquals(1, Permutation.cycleType(p, longCounts, new boolean[n]));
+        assertEquals(1, longCounts[n]);
+    }
+
+    @Test
+    public void checkConjugate() {
+        int[] p = new int[26], g = new int[26], r = new int[26];
+        int[] pCounts = new int[27], rCounts = new int[27];
+        new Permutation(NAVALA.get("I"), UPPER).table(p);
+        new Permutation(NAVALA.get("Beta"), UPPER).table(g);
+        Permutation.conjugate(p, g, r);
+        for (int i = 0; i < 26; i += 1) {
+            assertEquals(g[p[i]], r[g[i]]);
+        }
+        boolean[] seen = new boolean[26];
+        Permutation.cycleType(p, pCounts, seen);
+        Permutation.cycleType(r, rCounts, seen);
+        assertArrayEquals(pCounts, rCounts);
+    }
+
 }
@@ -0,0 +1,189 @@
+package amazons;
+
+import static amazons.Board.SIZE;
+
+/**
+ * Utilities for sets of Squares represented as 128-bit masks.  A set is a
+ * pair of longs (LO, HI): bit k of LO is set iff the square with index k
+ * (0 <= k < 64) is in the set, and bit k - 64 of HI is set iff the
+ * square with index k (64 <= k < 100) is.  Bits 36-63 of HI are always
+ * zero.  Since a method cannot return both halves, operations that
+ * produce a set come in pairs (xxxLo and xxxHi) that compute the two
+ * halves of the result separately.
+ */
+public final class Bitboard {
+
+    /**
+     * The number of squares in the HI half.
+     */
+    static final int HI_SQUARES = SIZE * SIZE - 64;
+    /**
+     * All squares, in LO and HI.
+     */
+    public static final long ALL_LO = -1L, ALL_HI = (1L << HI_SQUARES) - 1;
+    /**
+     * The squares in column 0 and column SIZE - 1.
+     */
+    private static final long COL0_LO, COL0_HI, COL9_LO, COL9_HI;
+    /**
+     * Index deltas for one step in each direction, in the order used by
+     * Square.queenMove.
+     */
+    private static final int[] DELTA = {
+            SIZE, SIZE + 1, 1, 1 - SIZE, -SIZE, -SIZE - 1, -1, SIZE - 1
+    };
+    /**
+     * Column change for one step in each direction.
+     */
+    private static final int[] DCOL = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    static {
+        long c0lo = 0, c0hi = 0, c9lo = 0, c9hi = 0;
+        for (int row = 0; row < SIZE; row += 1) {
+            c0lo |= bitLo(row * SIZE);
+            c0hi |= bitHi(row * SIZE);
+            c9lo |= bitLo(row * SIZE + SIZE - 1);
+            c9hi |= bitHi(row * SIZE + SIZE - 1);
+        }
+        COL0_LO = c0lo;
+        COL0_HI = c0hi;
+        COL9_LO = c9lo;
+        COL9_HI = c9hi;
+    }
+
+    /**
+     * Not instantiable.
+     */
+    private Bitboard() {
+    }
+
+    /**
+     * Return the LO half of the set containing just square index K.
+     */
+    public static long bitLo(int k) {
+        return k < 64 ? 1L << k : 0L;
+    }
+
+    /**
+     * Return the HI half of the set containing just square index K.
+     */
+    public static long bitHi(int k) {
+        return k >= 64 ? 1L << (k - 64) : 0L;
+    }
+
+    /**
+     * Return true iff square index K is in the set (LO, HI).
+     */
+    public static boolean contains(long lo, long hi, int k) {
+        return k < 64 ? (lo >>> k & 1L) != 0 : (hi >>> (k - 64) & 1L) != 0;
+    }
+
+    /**
+     * Return the number of squares in the set (LO, HI).
+     */
+    public static int count(long lo, long hi) {
+        return Long.bitCount(lo) + Long.bitCount(hi);
+    }
+
+    /**
+     * Return the smallest square index in the set (LO, HI), or -1 if it
+     * is empty.  To visit every member of a set, repeatedly take its
+     * first member k and remove it with lo &= lo - 1 (if k < 64) or
+     * hi &= hi - 1 (otherwise).
+     */
+    public static int first(long lo, long hi) {
+        if (lo != 0) {
+            return Long.numberOfTrailingZeros(lo);
+        }
+        if (hi != 0) {
+            return 64 + Long.numberOfTrailingZeros(hi);
+        }
+        return -1;
+    }
+
+    /**
+     * Return the LO half of the set (LO, HI) moved one step in direction
+     * DIR (as for Square.queenMove), dropping squares that leave the
+     * board.
+     */
+    public static long shiftLo(long lo, long hi, int dir) {
+        int d = DELTA[dir];
+        long r;
+        if (d > 0) {
+            r = lo << d;
+        } else {
+            r = lo >>> -d | hi << (64 + d);
+        }
+        return r & destinationMaskLo(dir);
+    }
+
+    /**
+     * Return the HI half of the set (LO, HI) moved one step in direction
+     * DIR (as for Square.queenMove), dropping squares that leave the
+     * board.
+     */
+    public static long shiftHi(long lo, long hi, int dir) {
+        int d = DELTA[dir];
+        long r;
+        if (d > 0) {
+            r = hi << d | lo >>> (64 - d);
+        } else {
+            r = hi >>> -d;
+        }
+        return r & destinationMaskHi(dir);
+    }
+
+    /**
+     * Return the LO half of the set of squares one king step (in any of
+     * the eight directions) from a member of (LO, HI).
+     */
+    public static long neighborsLo(long lo, long hi) {
+        long r = 0;
+        for (int dir = 0; dir < 8; dir += 1) {
+            r |= shiftLo(lo, hi, dir);
+        }
+        return r;
+    }
+
+    /**
+     * Return the HI half of the set of squares one king step (in any of
+     * the eight directions) from a member of (LO, HI).
+     */
+    public static long neighborsHi(long lo, long hi) {
+        long r = 0;
+        for (int dir = 0; dir < 8; dir += 1) {
+            r |= shiftHi(lo, hi, dir);
+        }
+        return r;
+    }
+
+    /**
+     * Return the LO half of the squares that a step in direction DIR may
+     * land on without having wrapped around a side of the board.
+     */
+    private static long destinationMaskLo(int dir) {
+        switch (DCOL[dir]) {
+            case 1:
+                return ~COL0_LO;
+            case -1:
+                return ~COL9_LO;
+            default:
+                return ALL_LO;
+        }
+    }
+
+    /**
+     * Return the HI half of the squares that a step in direction DIR may
+     * land on without having wrapped around a side of the board.
+     */
+    private static long destinationMaskHi(int dir) {
+        switch (DCOL[dir]) {
+            case 1:
+                return ~COL0_HI & ALL_HI;
+            case -1:
+                return ~COL9_HI & ALL_HI;
+            default:
+                return ALL_HI;
+        }
+    }
+}
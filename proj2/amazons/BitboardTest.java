@@ -0,0 +1,70 @@
+package amazons;
+
+import org.junit.Test;
+
+import static amazons.Piece.*;
+import static org.junit.Assert.*;
+
+public class BitboardTest {
+
+    private static final String CORNERS =
+            "   B - - - - - - - - W\n" +
+                    "   - - - - - - - - - -\n" +
+                    "   - - - - - - - - - -\n" +
+                    "   - - - - - - - - - -\n" +
+                    "   - - - - - - - - - -\n" +
+                    "   - - - - - - - - - -\n" +
+                    "   - - - - - - - - - -\n" +
+                    "   - - - - - - - - - -\n" +
+                    "   - S - - - - - - - -\n" +
+                    "   W S - - - - - - - B\n";
+
+    @Test
+    public void boardMasks() {
+        Board board = new Board(CORNERS);
+        assertEquals(2, board.countChess(WHITE));
+        assertEquals(2, board.countChess(BLACK));
+        assertEquals(2, board.countChess(SPEAR));
+        assertEquals(94, board.countChess(EMPTY));
+        assertTrue(Bitboard.contains(board.queensLo(WHITE),
+                board.queensHi(WHITE), 0));
+        assertTrue(Bitboard.contains(board.queensLo(WHITE),
+                board.queensHi(WHITE), 99));
+        assertTrue(Bitboard.contains(board.queensLo(BLACK),
+                board.queensHi(BLACK), 9));
+        assertTrue(Bitboard.contains(board.queensLo(BLACK),
+                board.queensHi(BLACK), 90));
+        assertEquals(6, Bitboard.count(board.occupiedLo(),
+                board.occupiedHi()));
+        assertEquals(CORNERS, board.toString());
+    }
+
+    @Test
+    public void shifts() {
+        for (int k = 0; k < Board.SIZE * Board.SIZE; k += 1) {
+            Square from = Square.sq(k);
+            long lo = Bitboard.bitLo(k), hi = Bitboard.bitHi(k);
+            for (int dir = 0; dir < 8; dir += 1) {
+                Square to = from.queenMove(dir, 1);
+                long rlo = Bitboard.shiftLo(lo, hi, dir),
+                        rhi = Bitboard.shiftHi(lo, hi, dir);
+                if (to == null) {
+                    assertEquals(0, Bitboard.count(rlo, rhi));
+                } else {
+                    assertEquals(1, Bitboard.count(rlo, rhi));
+                    assertEquals(to.index(), Bitboard.first(rlo, rhi));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void neighbors() {
+        assertEquals(3, Bitboard.count(Bitboard.neighborsLo(1L, 0),
+                Bitboard.neighborsHi(1L, 0)));
+        int k = Square.sq("e5").index();
+        assertEquals(8, Bitboard.count(
+                Bitboard.neighborsLo(Bitboard.bitLo(k), Bitboard.bitHi(k)),
+                Bitboard.neighborsHi(Bitboard.bitLo(k), Bitboard.bitHi(k))));
+    }
+}
@@ -19,10 +19,49 @@ public class Board {
      */
     public static final int SIZE = 10;
     /**
-     * An empty iterator for initialization.
+     * The most squares a queen can reach in one move (from a central
+     * square of an otherwise empty board).
      */
-    private static final Iterator<Square> NO_SQUARES =
-            Collections.emptyIterator();
+    public static final int MAX_REACH = 35;
+    /**
+     * An upper bound on the number of queen moves (ignoring spears) for a
+     * side with four queens.
+     */
+    public static final int MAX_QUEEN_MOVES = 4 * MAX_REACH;
+    /**
+     * An upper bound on the number of legal moves for a side with four
+     * queens (at most 35 queen moves, each followed by at most 35 spear
+     * throws, per queen).  Move buffers for generateMoves should have at
+     * least this many free elements, or maxMoves if the position was set
+     * up with more queens.
+     */
+    public static final int MAX_MOVES = MAX_QUEEN_MOVES * MAX_REACH;
+
+    /**
+     * Zobrist keys: ZOBRIST[p][k] is XORed into a position's key when
+     * square index k holds piece p (by ordinal; EMPTY's row is zero).
+     */
+    private static final long[][] ZOBRIST = new long[4][SIZE * SIZE];
+    /**
+     * Zobrist key XORed into the key of positions with BLACK to move.
+     */
+    private static final long BLACK_TO_MOVE;
+    /**
+     * Zobrist key XORed into the key of positions in which a queen has
+     * moved but not yet thrown its spear (see keyAfterQueenMove).
+     */
+    private static final long HALF_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x61BL);
+        for (Piece p : new Piece[] { WHITE, BLACK, SPEAR }) {
+            for (int k = 0; k < SIZE * SIZE; k++) {
+                ZOBRIST[p.ordinal()][k] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+        HALF_MOVE = random.nextLong();
+    }
 
     /**
      * Initial state of board, from top to bottom, left to right.
@@ -42,21 +81,42 @@ public class Board {
     };
 
     /**
-     * Current state of board.
+     * Current state of board: the sets of squares holding white queens,
+     * black queens, and spears, as Bitboard masks.  All other squares
+     * are empty.
      */
-    private Piece[][] _state = new Piece[SIZE][SIZE];
+    private long _whiteLo, _whiteHi, _blackLo, _blackHi, _spearLo, _spearHi;
 
     /**
      * Piece whose turn it is (BLACK or WHITE).
      */
     private Piece _turn;
     /**
-     * Cached value of winner on this board, or EMPTY if it has not been
-     * computed.
+     * _emptyNeighbors[k] is the number of empty squares one king step
+     * from the square with index k, maintained by put.
      */
-    private Piece _winner;
-
-    private Deque<Move> _moveStack = new LinkedList<>();
+    private final byte[] _emptyNeighbors = new byte[SIZE * SIZE];
+    /**
+     * The numbers of white and black queens with at least one empty
+     * neighbor, and so at least one legal move.  A side whose count is
+     * 0 cannot move.
+     */
+    private int _mobileWhite, _mobileBlack;
+    /**
+     * Zobrist hash of the current position, maintained by put and by
+     * changes of turn.
+     */
+    private long _key;
+    /**
+     * The moves made (and not undone), packed, oldest first.  Each move
+     * leaves one fewer empty square, so SIZE * SIZE entries hold any game
+     * played without put between moves; makeMove enlarges it otherwise.
+     */
+    private int[] _history = new int[SIZE * SIZE];
+    /**
+     * The number of moves in _history.
+     */
+    private int _numMoves;
 
     /**
      * Initializes a game board with SIZE squares on a side in the
@@ -77,6 +137,7 @@ public class Board {
      * Initialize a board by the string representation
      */
     public Board(String content) {
+        clear();
         String[] split = content.split("\n");
         for (int i = 0, splitLength = split.length; i < splitLength; i++) {
             String line = split[i];
@@ -100,37 +161,66 @@ public class Board {
                 if (c == 'B') {
                     p = BLACK;
                 }
-                _state[SIZE - i - 1][jIndex++] = p;
+                if (p != null) {
+                    put(p, jIndex, SIZE - i - 1);
+                }
+                jIndex++;
             }
         }
         _turn = WHITE;
-        _winner = EMPTY;
     }
 
 
     /**
-     * Copies MODEL into me.
+     * Copies MODEL into me.  My state is six masks, the neighbor counts,
+     * a key, the side to move and a history of (almost always) at most
+     * SIZE * SIZE ints, so this takes bounded time and allocates nothing.
      */
     public void copy(Board model) {
-        for (int i = 0; i < SIZE; i++) {
-            _state[i] = Arrays.copyOf(model._state[i], SIZE);
-        }
+        _whiteLo = model._whiteLo;
+        _whiteHi = model._whiteHi;
+        _blackLo = model._blackLo;
+        _blackHi = model._blackHi;
+        _spearLo = model._spearLo;
+        _spearHi = model._spearHi;
+        System.arraycopy(model._emptyNeighbors, 0, _emptyNeighbors, 0,
+                SIZE * SIZE);
+        _mobileWhite = model._mobileWhite;
+        _mobileBlack = model._mobileBlack;
+        _key = model._key;
         _turn = model._turn;
-        _winner = model._winner;
-        _moveStack = new LinkedList<>(model._moveStack);
+        _numMoves = model._numMoves;
+        if (_history.length < _numMoves) {
+            _history = new int[model._history.length];
+        }
+        System.arraycopy(model._history, 0, _history, 0, _numMoves);
     }
 
     /**
      * Clears the board to the initial position.
      */
     void init() {
-        for (int i = 0; i < SIZE; i++) {
-            _state[i] = Arrays.copyOf(INIT_STATE[SIZE - i - 1], SIZE);
+        clear();
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                put(INIT_STATE[SIZE - row - 1][col], col, row);
+            }
         }
 
         _turn = WHITE;
-        _winner = EMPTY;
-        _moveStack.clear();
+        _numMoves = 0;
+    }
+
+    /**
+     * Make every square empty.
+     */
+    private void clear() {
+        _whiteLo = _whiteHi = _blackLo = _blackHi = _spearLo = _spearHi = 0;
+        for (int k = 0; k < SIZE * SIZE; k++) {
+            _emptyNeighbors[k] = (byte) Square.neighbors(k).length;
+        }
+        _mobileWhite = _mobileBlack = 0;
+        _key = 0;
     }
 
     /**
@@ -145,15 +235,17 @@ public class Board {
      * board.
      */
     public int numMoves() {
-        return _moveStack.size();
+        return _numMoves;
     }
 
     /**
-     * Return the winner in the current position, or null if the game is
-     * not yet finished.
+     * Return the winner in the current position, or EMPTY if the game is
+     * not yet finished.  The side to move loses when none of its queens
+     * has an empty neighbor.  Takes constant time.
      */
     public Piece winner() {
-        return _winner;
+        return (_turn == WHITE ? _mobileWhite : _mobileBlack) == 0
+                ? _turn.opponent() : EMPTY;
     }
 
     /**
@@ -173,7 +265,21 @@ public class Board {
      * 0 <= COL, ROW < 9.
      */
     Piece get(int col, int row) {
-        return _state[row][col];
+        return get(row * SIZE + col);
+    }
+
+    /**
+     * Return the contents of the square with index K.
+     */
+    private Piece get(int k) {
+        if (Bitboard.contains(_whiteLo, _whiteHi, k)) {
+            return WHITE;
+        } else if (Bitboard.contains(_blackLo, _blackHi, k)) {
+            return BLACK;
+        } else if (Bitboard.contains(_spearLo, _spearHi, k)) {
+            return SPEAR;
+        }
+        return EMPTY;
     }
 
     /**
@@ -200,7 +306,72 @@ public class Board {
      * Set square (COL, ROW) to P.
      */
     private void put(Piece p, int col, int row) {
-        _state[row][col] = p;
+        put(p, row * SIZE + col);
+    }
+
+    /**
+     * Set the square with index K to P.
+     */
+    private void put(Piece p, int k) {
+        Piece old = get(k);
+        if (old == p) {
+            return;
+        }
+        if (_emptyNeighbors[k] > 0) {
+            addMobile(old, -1);
+        }
+        _key ^= ZOBRIST[old.ordinal()][k] ^ ZOBRIST[p.ordinal()][k];
+
+        long lo = ~Bitboard.bitLo(k), hi = ~Bitboard.bitHi(k);
+        _whiteLo &= lo;
+        _whiteHi &= hi;
+        _blackLo &= lo;
+        _blackHi &= hi;
+        _spearLo &= lo;
+        _spearHi &= hi;
+        lo = ~lo;
+        hi = ~hi;
+        switch (p) {
+            case WHITE:
+                _whiteLo |= lo;
+                _whiteHi |= hi;
+                break;
+            case BLACK:
+                _blackLo |= lo;
+                _blackHi |= hi;
+                break;
+            case SPEAR:
+                _spearLo |= lo;
+                _spearHi |= hi;
+                break;
+            default:
+                break;
+        }
+
+        if ((old == EMPTY) != (p == EMPTY)) {
+            int delta = p == EMPTY ? 1 : -1;
+            for (int n : Square.neighbors(k)) {
+                _emptyNeighbors[n] += delta;
+                if (_emptyNeighbors[n] == (delta > 0 ? 1 : 0)) {
+                    addMobile(get(n), delta);
+                }
+            }
+        }
+        if (_emptyNeighbors[k] > 0) {
+            addMobile(p, 1);
+        }
+    }
+
+    /**
+     * Add DELTA to the count of mobile queens of color P, if P is WHITE
+     * or BLACK.
+     */
+    private void addMobile(Piece p, int delta) {
+        if (p == WHITE) {
+            _mobileWhite += delta;
+        } else if (p == BLACK) {
+            _mobileBlack += delta;
+        }
     }
 
     /**
@@ -215,59 +386,94 @@ public class Board {
     }
 
     /**
-     * Return true iff FROM - TO is an unblocked queen move on the current
-     * board, ignoring the contents of ASEMPTY, if it is encountered.
-     * For this to be true, FROM-TO must be a queen move and the
-     * squares along it, other than FROM and ASEMPTY, must be
-     * empty. ASEMPTY may be null, in which case it has no effect.
+     * Return the 64-bit Zobrist hash of the current position, including
+     * the side to move.  Equal positions have equal keys, however they
+     * were reached; unequal positions almost always have unequal ones.
      */
-    public boolean isUnblockedMove(Square from, Square to, Square asEmpty) {
-        if (!(get(to) == EMPTY) && to != asEmpty) {
-            return false;
-        }
+    public long key() {
+        return _key;
+    }
 
-        if (!from.isQueenMove(to)) {
-            return false;
-        }
+    /**
+     * Return the Zobrist key of the position reached from this one when
+     * the queen on square index FROM moves to square index TO, before it
+     * throws its spear.  Such positions have keys distinct from those of
+     * positions between moves.
+     */
+    public long keyAfterQueenMove(int from, int to) {
+        int queen = get(from).ordinal();
+        return _key ^ HALF_MOVE
+            ^ ZOBRIST[queen][from] ^ ZOBRIST[queen][to];
+    }
 
-        int direction = from.direction(to);
+    /**
+     * Return the LO half of the Bitboard set of squares holding queens of
+     * color SIDE (WHITE or BLACK).
+     */
+    public long queensLo(Piece side) {
+        return side == WHITE ? _whiteLo : _blackLo;
+    }
 
-        for (int i = 1; i < SIZE; i++) {
-            Square currentPos = from.queenMove(direction, i);
-            if (currentPos == to) {
-                return true;
-            }
+    /**
+     * Return the HI half of the Bitboard set of squares holding queens of
+     * color SIDE (WHITE or BLACK).
+     */
+    public long queensHi(Piece side) {
+        return side == WHITE ? _whiteHi : _blackHi;
+    }
 
-            if (get(currentPos) != EMPTY && currentPos != asEmpty) {
-                return false;
-            }
-        }
+    /**
+     * Return the LO half of the Bitboard set of squares holding spears.
+     */
+    public long spearsLo() {
+        return _spearLo;
+    }
+
+    /**
+     * Return the HI half of the Bitboard set of squares holding spears.
+     */
+    public long spearsHi() {
+        return _spearHi;
+    }
+
+    /**
+     * Return the LO half of the Bitboard set of occupied squares.
+     */
+    public long occupiedLo() {
+        return _whiteLo | _blackLo | _spearLo;
+    }
 
-        throw new RuntimeException("Shall not reach here");
+    /**
+     * Return the HI half of the Bitboard set of occupied squares.
+     */
+    public long occupiedHi() {
+        return _whiteHi | _blackHi | _spearHi;
     }
 
     /**
-     * Return true iff FROM is a valid starting square for a move.
+     * Return true iff FROM - TO is an unblocked queen move on the current
+     * board, ignoring the contents of ASEMPTY, if it is encountered.
+     * For this to be true, FROM-TO must be a queen move and the
+     * squares along it, other than FROM and ASEMPTY, must be
+     * empty. ASEMPTY may be null, in which case it has no effect.
      */
-    private boolean isLegal(Square from) {
-        Piece curState = get(from);
-        if (curState == EMPTY || curState == SPEAR) {
+    public boolean isUnblockedMove(Square from, Square to, Square asEmpty) {
+        if (!(get(to) == EMPTY) && to != asEmpty) {
             return false;
         }
 
-        // Once find a move, it's a legal starting square. (from_to(from))
-        for (int i = 0; i < 8; i++) {
-            Square next = from.queenMove(i, 1);
-            if (next == null) {
-                continue;
-            }
-            Piece nextPiece = get(next);
-            if (nextPiece == EMPTY) {
-                return true;
-            }
+        int f = from.index(), t = to.index();
+        if (Square.direction(f, t) < 0) {
+            return false;
         }
 
-        return false;
+        long lo = Square.betweenLo(f, t) & occupiedLo(),
+                hi = Square.betweenHi(f, t) & occupiedHi();
+        if (asEmpty != null) {
+            lo &= ~Bitboard.bitLo(asEmpty.index());
+            hi &= ~Bitboard.bitHi(asEmpty.index());
+        }
+        return (lo | hi) == 0;
     }
 
     /**
@@ -311,53 +517,40 @@ public class Board {
      */
     public void makeMove(Move move) {
         assert isLegal(move);
-
-        assert get(move.from()) == _turn;
-
-        put(EMPTY, move.from());
-        put(_turn, move.to());
-        put(SPEAR, move.spear());
-
-        _turn = _turn.opponent();
-        _moveStack.push(move);
-
-        updateWinner();
+        makeMove(move.pack());
     }
 
-    private void updateWinner() {
-        int valid = 0;
-
-        for (int i = 0; i < SIZE * SIZE; i++) {
-            if (isLegal(Square.sq(i))) {
-                if (get(Square.sq(i)) == _turn) {
-                    valid++;
-                }
-            }
-        }
-
-        if (valid == 0) {
-            _winner = _turn.opponent();
-        } else {
-            _winner = EMPTY;
+    /**
+     * Move according to the packed move MOVE (see Move.pack), assuming
+     * it is a legal move.  This is makeMove(Move) without the check,
+     * for searches, which make their moves straight from generateMoves.
+     */
+    public void makeMove(int move) {
+        assert get(Move.fromIndex(move)) == _turn;
+        put(EMPTY, Move.fromIndex(move));
+        put(_turn, Move.toIndex(move));
+        put(SPEAR, Move.spearIndex(move));
+        _turn = _turn.opponent();
+        _key ^= BLACK_TO_MOVE;
+        if (_numMoves == _history.length) {
+            _history = Arrays.copyOf(_history, 2 * _numMoves);
         }
+        _history[_numMoves++] = move;
     }
 
     /**
      * Undo one move.  Has no effect on the initial board.
      */
     public void undo() {
-        if (numMoves() <= 0 || _moveStack.size() <= 0) {
+        if (_numMoves <= 0) {
             return;
         }
-
-        Move lastMove = _moveStack.poll();
-
+        int move = _history[--_numMoves];
         _turn = _turn.opponent();
-        put(EMPTY, lastMove.spear());
-        put(EMPTY, lastMove.to());
-        put(_turn, lastMove.from());
-
-        updateWinner();
+        _key ^= BLACK_TO_MOVE;
+        put(EMPTY, Move.spearIndex(move));
+        put(EMPTY, Move.toIndex(move));
+        put(_turn, Move.fromIndex(move));
     }
 
     /**
@@ -373,6 +566,106 @@ public class Board {
         return new ReachableFromIterator(from, asEmpty);
     }
 
+    /**
+     * Store all legal moves on the current board for SIDE (regardless of
+     * whose turn it is) in BUF, packed as for Move.pack, and return their
+     * number.  Equivalent to generateMoves(SIDE, BUF, 0).
+     */
+    public int generateMoves(Piece side, int[] buf) {
+        return generateMoves(side, buf, 0);
+    }
+
+    /**
+     * Store all legal moves on the current board for SIDE (regardless of
+     * whose turn it is) in BUF, packed as for Move.pack, starting at
+     * BUF[START], and return their number.  A search may thus keep the
+     * moves of all plies in one array, each ply starting after the moves
+     * of the ply above.  Moves are in the same order as legalMoves(SIDE).
+     * Visits only SIDE's queens, scans each ray once, and allocates
+     * nothing.
+     */
+    public int generateMoves(Piece side, int[] buf, int start) {
+        long occLo = occupiedLo(), occHi = occupiedHi();
+        long queensLo = queensLo(side), queensHi = queensHi(side);
+        int n = start;
+        while ((queensLo | queensHi) != 0) {
+            int from = Bitboard.first(queensLo, queensHi);
+            if (from < 64) {
+                queensLo &= queensLo - 1;
+            } else {
+                queensHi &= queensHi - 1;
+            }
+            long spearLo = occLo & ~Bitboard.bitLo(from),
+                    spearHi = occHi & ~Bitboard.bitHi(from);
+            for (int dir = 0; dir < 8; dir++) {
+                for (int to : Square.ray(from, dir)) {
+                    if (Bitboard.contains(occLo, occHi, to)) {
+                        break;
+                    }
+                    for (int dir2 = 0; dir2 < 8; dir2++) {
+                        for (int spear : Square.ray(to, dir2)) {
+                            if (Bitboard.contains(spearLo, spearHi, spear)) {
+                                break;
+                            }
+                            buf[n++] = Move.pack(from, to, spear);
+                        }
+                    }
+                }
+            }
+        }
+        return n - start;
+    }
+
+    /**
+     * Store the queen moves of all legal moves on the current board for
+     * SIDE in BUF, starting at BUF[START], as Moves packed with spear
+     * index 0, and return their number.  The moves are in the order of
+     * generateMoves.  There are at most maxQueenMoves(SIDE) of them.
+     */
+    public int generateQueenMoves(Piece side, int[] buf, int start) {
+        long occLo = occupiedLo(), occHi = occupiedHi();
+        long queensLo = queensLo(side), queensHi = queensHi(side);
+        int n = start;
+        while ((queensLo | queensHi) != 0) {
+            int from = Bitboard.first(queensLo, queensHi);
+            if (from < 64) {
+                queensLo &= queensLo - 1;
+            } else {
+                queensHi &= queensHi - 1;
+            }
+            for (int dir = 0; dir < 8; dir++) {
+                for (int to : Square.ray(from, dir)) {
+                    if (Bitboard.contains(occLo, occHi, to)) {
+                        break;
+                    }
+                    buf[n++] = Move.pack(from, to, 0);
+                }
+            }
+        }
+        return n - start;
+    }
+
+    /**
+     * Store the legal moves on the current board that move the queen on
+     * square index FROM to square index TO (an unblocked queen move) in
+     * BUF, starting at BUF[START], packed as for Move.pack, and return
+     * their number.  The moves are in the order of generateMoves.
+     */
+    public int generateSpears(int from, int to, int[] buf, int start) {
+        long spearLo = occupiedLo() & ~Bitboard.bitLo(from),
+            spearHi = occupiedHi() & ~Bitboard.bitHi(from);
+        int n = start;
+        for (int dir = 0; dir < 8; dir++) {
+            for (int spear : Square.ray(to, dir)) {
+                if (Bitboard.contains(spearLo, spearHi, spear)) {
+                    break;
+                }
+                buf[n++] = Move.pack(from, to, spear);
+            }
+        }
+        return n - start;
+    }
+
     /**
      * Return an Iterator over all legal moves on the current board.
      */
@@ -388,16 +681,36 @@ public class Board {
         return new LegalMoveIterator(side);
     }
 
+    /**
+     * Return an upper bound on the number of queen moves (ignoring
+     * spears) of SIDE in this or any later position: MAX_REACH for each
+     * of its queens, and at least MAX_QUEEN_MOVES.  This exceeds
+     * MAX_QUEEN_MOVES only in positions set up with more than four
+     * queens of a color.
+     */
+    public int maxQueenMoves(Piece side) {
+        return Math.max(MAX_QUEEN_MOVES, MAX_REACH * countChess(side));
+    }
+
+    /**
+     * Return an upper bound on the number of legal moves of SIDE in this
+     * or any later position, as for maxQueenMoves.
+     */
+    public int maxMoves(Piece side) {
+        return maxQueenMoves(side) * MAX_REACH;
+    }
+
     public int countChess(Piece p) {
-        Iterator<Square> iterator = Square.iterator();
-        int count = 0;
-        while (iterator.hasNext()) {
-            Square square = iterator.next();
-            if (get(square) == p) {
-                count++;
-            }
+        switch (p) {
+            case WHITE:
+                return Bitboard.count(_whiteLo, _whiteHi);
+            case BLACK:
+                return Bitboard.count(_blackLo, _blackHi);
+            case SPEAR:
+                return Bitboard.count(_spearLo, _spearHi);
+            default:
+                return SIZE * SIZE - Bitboard.count(occupiedLo(), occupiedHi());
         }
-        return count;
     }
 
     @Override
@@ -443,8 +756,6 @@ public class Board {
          */
         private final Square _asEmpty;
 
-        private Square _next;
-
         /**
          * Iterator of all squares reachable by queen move from FROM,
          * treating ASEMPTY as empty.
@@ -471,26 +782,21 @@ public class Board {
 
         /**
          * Advance _dir and _steps, so that the next valid Square is
-         * _steps steps in direction _dir from _from.
+         * _steps steps in direction _dir from _from, scanning each ray
+         * until it meets an occupied square.
          */
         private void toNext() {
-            if (!hasNext()) {
-                return;
-            }
-
-            _steps += 1;
-            if (_dir < 0 || _dir >= 8 || _steps < 0 || _steps >= 10) {
-                _dir += 1;
-                _steps = 0;
-                toNext();
-                return;
-            }
-
-            _next = _from.queenMove(_dir, _steps);
-            if (_next == null || !isUnblockedMove(_from, _next, _asEmpty)) {
+            while (_dir < 8) {
+                int[] ray = Square.ray(_from.index(), _dir);
+                if (_steps < ray.length) {
+                    Square next = Square.sq(ray[_steps]);
+                    if (get(next) == EMPTY || next == _asEmpty) {
+                        _steps += 1;
+                        return;
+                    }
+                }
                 _dir += 1;
                 _steps = 0;
-                toNext();
             }
         }
     }
@@ -501,93 +807,44 @@ public class Board {
     private class LegalMoveIterator implements Iterator<Move> {
 
         /**
-         * Color of side whose moves we are iterating.
-         */
-        private final Piece _fromPiece;
-        /**
-         * Current starting square.
-         */
-        private Square _start;
-        /**
-         * Remaining starting squares to consider.
-         */
-        private final Iterator<Square> _startingSquares;
-        /**
-         * Current piece's new position.
+         * The moves, packed, as produced by generateMoves.
          */
-        private Square _nextSquare;
+        private final int[] _moves;
         /**
-         * Remaining moves from _start to consider.
+         * The number of moves in _moves.
          */
-        private Iterator<Square> _pieceMoves;
+        private final int _count;
         /**
-         * Remaining spear throws from _piece to consider.
+         * Position of the next move in _moves.
          */
-        private Iterator<Square> _spearThrows;
+        private int _next;
 
         /**
          * All legal moves for SIDE (WHITE or BLACK).
          */
         LegalMoveIterator(Piece side) {
-            _startingSquares = Square.iterator();
-            _spearThrows = NO_SQUARES;
-            _pieceMoves = NO_SQUARES;
-            _fromPiece = side;
-            toNext();
+            _moves = new int[maxMoves(side)];
+            _count = generateMoves(side, _moves);
         }
 
         @Override
         public boolean hasNext() {
-            return _spearThrows.hasNext();
+            return _next < _count;
         }
 
         @Override
         public Move next() {
-            Move mv = Move.mv(_start, _nextSquare, _spearThrows.next());
-            toNext();
-            return mv;
-        }
-
-        /**
-         * Advance so that the next valid Move is
-         * _start-_nextSquare(sp), where sp is the next value of
-         * _spearThrows.
-         */
-        private void toNext() {
-            if (hasNext()) {
-                return;
-            }
-
-            if (_pieceMoves.hasNext()) {
-                _nextSquare = _pieceMoves.next();
-                _spearThrows = reachableFrom(_nextSquare, _start);
-                return;
-            }
-
-            while (_startingSquares.hasNext()) {
-                _start = _startingSquares.next();
-                if (get(_start) == _fromPiece && isLegal(_start)) {
-                    _pieceMoves = reachableFrom(_start, null);
-                    // Since it's a legal starting square, toNext() won't fail
-                    toNext();
-                    return;
-                }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
             }
-
-            // END ITERATING
-            _spearThrows = NO_SQUARES;
+            return Move.mv(_moves[_next++]);
         }
     }
 
     public List<Move> lastMoves(int count) {
         List<Move> moves = new ArrayList<>(count);
-        for (Move move : _moveStack) {
-            if (count <= 0) {
-                break;
-            }
-
-            moves.add(move);
-            count--;
+        for (int i = _numMoves - 1; i >= 0 && count > 0; i -= 1, count -= 1) {
+            moves.add(Move.mv(_history[i]));
         }
         return moves;
     }
@@ -4,6 +4,7 @@ import org.junit.Test;
 
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Random;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
@@ -123,6 +124,26 @@ public class BoardTest {
         assertEquals(manualLegalCount(board, Piece.BLACK), legalCount(board, Piece.BLACK));
     }
 
+    @Test
+    public void testCrowdedLegalIterator() {
+        String content =
+                "   - - - - - W - - - B\n" +
+                        "   - - - - - - - - - -\n" +
+                        "   - W - - - - - - - -\n" +
+                        "   - - - - - - - W - -\n" +
+                        "   - - - - - - - - - -\n" +
+                        "   - - W - - - - - - -\n" +
+                        "   - - - - - - - - - W\n" +
+                        "   - - - - - - - - - -\n" +
+                        "   - - - - - - - - W -\n" +
+                        "   W - - W - - - - - -\n";
+        Board b = new Board(content);
+
+        Set<Move> moves = legalCount(b, Piece.WHITE);
+        assertTrue(moves.size() > Board.MAX_MOVES);
+        assertEquals(manualLegalCount(b, Piece.WHITE), moves);
+    }
+
     private Set<Move> manualLegalCount(Board board, Piece piece) {
         Set<Move> sets = new HashSet<>();
         for (int i = 0; i < Board.SIZE; i++) {
@@ -225,4 +246,174 @@ public class BoardTest {
 
         assertTrue(found);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGenerateMoves() {
+        Board board = new Board();
+        int[] buf = new int[2 * Board.MAX_MOVES];
+
+        int white = board.generateMoves(Piece.WHITE, buf);
+        assertEquals(2176, white);
+        assertEquals(legalCount(board, Piece.WHITE).size(), white);
+
+        int black = board.generateMoves(Piece.BLACK, buf, white);
+        assertEquals(2176, black);
+        for (int i = 0; i < white; i++) {
+            assertTrue(board.isLegal(Move.mv(buf[i])));
+            assertEquals(buf[i], Move.mv(buf[i]).pack());
+        }
+        for (int i = white; i < white + black; i++) {
+            assertEquals(Piece.BLACK, board.get(Square.sq(Move.fromIndex(buf[i]))));
+        }
+    }
+
+    @Test
+    public void testWinnerTracking() {
+        Random random = new Random(61);
+        int[] buf = new int[Board.MAX_MOVES];
+        for (int game = 0; game < 20; game++) {
+            Board board = new Board();
+            int played = 0;
+            while (board.winner() == Piece.EMPTY) {
+                int count = board.generateMoves(board.turn(), buf);
+                assertTrue(count > 0);
+                board.makeMove(Move.mv(buf[random.nextInt(count)]));
+                played++;
+            }
+            assertEquals(0, board.generateMoves(board.turn(), buf));
+            assertEquals(board.turn().opponent(), board.winner());
+            for (int i = 0; i < played; i++) {
+                board.undo();
+                assertEquals(Piece.EMPTY, board.winner());
+            }
+            assertEquals(new Board().toString(), board.toString());
+        }
+    }
+
+    @Test
+    public void testZobristKey() {
+        Board board = new Board();
+        long initial = board.key();
+        assertEquals(initial, new Board().key());
+
+        Move a = Move.mv("d1-d5(c5)"), b = Move.mv("a7-b7(b6)");
+        Move c = Move.mv("g1-g5(h5)"), d = Move.mv("j7-i7(i6)");
+        board.makeMove(a);
+        assertTrue(board.key() != initial);
+        board.makeMove(b);
+        board.makeMove(c);
+        board.makeMove(d);
+        long key = board.key();
+
+        Board other = new Board();
+        other.makeMove(c);
+        other.makeMove(d);
+        other.makeMove(a);
+        other.makeMove(b);
+        assertEquals(key, other.key());
+
+        Board copy = new Board();
+        copy.copy(board);
+        assertEquals(key, copy.key());
+
+        for (int i = 0; i < 4; i++) {
+            board.undo();
+        }
+        assertEquals(initial, board.key());
+    }
+
+    @Test
+    public void testCopyHistory() {
+        Random random = new Random(49);
+        int[] buf = new int[Board.MAX_MOVES];
+        Board board = new Board();
+        for (int i = 0; i < 30; i++) {
+            int count = board.generateMoves(board.turn(), buf);
+            board.makeMove(buf[random.nextInt(count)]);
+        }
+        String position = board.toString();
+        long key = board.key();
+
+        Board copy = new Board(board);
+        assertEquals(30, copy.numMoves());
+        assertEquals(board.lastMoves(5), copy.lastMoves(5));
+        for (int i = 0; i < 30; i++) {
+            copy.undo();
+        }
+        assertEquals(new Board().toString(), copy.toString());
+        assertEquals(new Board().key(), copy.key());
+        copy.undo();
+        assertEquals(0, copy.numMoves());
+
+        assertEquals(position, board.toString());
+        assertEquals(key, board.key());
+        copy.copy(board);
+        copy.undo();
+        board.undo();
+        assertEquals(board.toString(), copy.toString());
+        assertEquals(board.key(), copy.key());
+    }
+
+    @Test
+    public void testLongGame() {
+        StringBuilder content = new StringBuilder();
+        for (int row = 0; row < Board.SIZE; row++) {
+            for (int col = 0; col < Board.SIZE; col++) {
+                content.append(row == 0 && col == 9 ? " B"
+                               : row == 9 && col == 0 ? " W" : " -");
+            }
+            content.append("\n");
+        }
+        Board board = new Board(content.toString());
+        String initial = board.toString();
+        int[] buf = new int[Board.MAX_MOVES];
+        Board copy = new Board();
+        while (board.winner() == Piece.EMPTY) {
+            int count = board.generateMoves(board.turn(), buf);
+            int best = 0, bestSpread = -1;
+            for (int i = 0; i < count; i++) {
+                int spread = spread(board, buf[i]);
+                if (spread > bestSpread) {
+                    best = buf[i];
+                    bestSpread = spread;
+                }
+            }
+            board.makeMove(best);
+            copy.copy(board);
+        }
+        assertTrue(board.numMoves() > 92);
+        assertEquals(board.numMoves(), copy.numMoves());
+        while (board.numMoves() > 0) {
+            board.undo();
+        }
+        assertEquals(initial, board.toString());
+    }
+
+    /**
+     * Return how well packed MOVE on BOARD prolongs the game: whether it
+     * keeps the game going, then how far its spear lands from the queens,
+     * then how short the queen's step is.
+     */
+    private static int spread(Board board, int move) {
+        int from = Move.fromIndex(move), to = Move.toIndex(move),
+            spear = Move.spearIndex(move);
+        board.makeMove(move);
+        int result = board.winner() == Piece.EMPTY ? 10000 : 0;
+        for (int k = 0; k < Board.SIZE * Board.SIZE; k++) {
+            Piece p = board.get(Square.sq(k));
+            if (p == Piece.WHITE || p == Piece.BLACK) {
+                result += 10 * kingDistance(k, spear);
+            }
+        }
+        board.undo();
+        return result - kingDistance(from, to);
+    }
+
+    /**
+     * Return the number of king steps between square indices A and B.
+     */
+    private static int kingDistance(int a, int b) {
+        return Math.max(Math.abs(a % Board.SIZE - b % Board.SIZE),
+                        Math.abs(a / Board.SIZE - b / Board.SIZE));
+    }
+}
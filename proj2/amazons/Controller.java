@@ -14,6 +14,10 @@ import static amazons.Utils.error;
  * The input/output and GUI controller for play of Amazons.
  */
 public final class Controller {
+    /**
+     * The largest number of threads an automated player may search with.
+     */
+    static final int MAX_SEARCH_THREADS = 256;
     /**
      * A Pattern matches comments.
      */
@@ -73,7 +77,25 @@ public final class Controller {
             new Command(Move.MOVE_PATTERN_SRTING, this::doMove),
             new Command("(?i)auto\\s+(black|white)$", this::doAuto),
             new Command("(?i)manual\\s+(black|white)$", this::doManual),
+            new Command("time\\s+(\\d+)\\s*(ms|s)?$", this::doTime),
+            new Command("threads\\s+(\\d+)$", this::doThreads),
+            new Command("ponder\\s+(on|off)$", this::doPonder),
+            new Command("perft\\s+(\\d+)$", this::doPerft),
     };
+    /**
+     * Time allowed to automated players per move, in milliseconds, or 0
+     * if unlimited.
+     */
+    private long _timeBudget;
+    /**
+     * Number of threads each automated player may search with.
+     */
+    private int _searchThreads = 1;
+    /**
+     * True iff automated players may search during their opponent's
+     * turn.
+     */
+    private boolean _pondering;
     /**
      * Reporter for messages and errors.
      */
@@ -109,8 +131,8 @@ public final class Controller {
         _playing = true;
         _winner = null;
         _board.init();
-        _white = _manualPlayerTemplate.create(WHITE, this);
-        _black = _autoPlayerTemplate.create(BLACK, this);
+        setPlayer(WHITE, _manualPlayerTemplate.create(WHITE, this));
+        setPlayer(BLACK, _autoPlayerTemplate.create(BLACK, this));
         while (_playing) {
             _view.update(_board);
             String command;
@@ -145,6 +167,29 @@ public final class Controller {
         return _board;
     }
 
+    /**
+     * Return the time allowed to automated players per move, in
+     * milliseconds, or 0 if they should search to a fixed depth instead.
+     */
+    public long timeBudget() {
+        return _timeBudget;
+    }
+
+    /**
+     * Return the number of threads each automated player may search with.
+     */
+    public int searchThreads() {
+        return _searchThreads;
+    }
+
+    /**
+     * Return true iff automated players may keep searching during their
+     * opponent's turn.
+     */
+    public boolean pondering() {
+        return _pondering;
+    }
+
     /**
      * Return a random integer in the range 0 inclusive to U, exclusive.
      * Available for use by AIs that use random selections in some cases.
@@ -230,6 +275,7 @@ public final class Controller {
      * Command "new".
      */
     private void doNew(Matcher unused) {
+        stopThinking();
         _board.init();
         _winner = null;
     }
@@ -253,6 +299,76 @@ public final class Controller {
         }
     }
 
+    /**
+     * Command "time N", "time Ns", or "time Nms", where N is the first
+     * group of MAT and the optional unit (default seconds) the second:
+     * limit automated players to N per move.  "time 0" removes the limit.
+     */
+    private void doTime(Matcher mat) {
+        try {
+            long budget = Long.parseLong(mat.group(1));
+            if (!"ms".equals(mat.group(2))) {
+                budget = Math.multiplyExact(budget, 1000L);
+            }
+            _timeBudget = budget;
+        } catch (NumberFormatException | ArithmeticException excp) {
+            throw error("number too large");
+        }
+    }
+
+    /**
+     * Command "threads N", where N is the first group of MAT: let
+     * automated players search with N threads, or with one per available
+     * processor if N is 0.
+     */
+    private void doThreads(Matcher mat) {
+        int threads;
+        try {
+            threads = Integer.parseInt(mat.group(1));
+        } catch (NumberFormatException excp) {
+            throw error("number too large");
+        }
+        if (threads == 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        if (threads > MAX_SEARCH_THREADS) {
+            throw error("at most %d threads allowed", MAX_SEARCH_THREADS);
+        }
+        _searchThreads = threads;
+    }
+
+    /**
+     * Command "ponder on" or "ponder off", according to the first group
+     * of MAT: allow or forbid automated players to search during their
+     * opponent's turn.
+     */
+    private void doPonder(Matcher mat) {
+        _pondering = "on".equals(mat.group(1));
+        if (!_pondering) {
+            stopThinking();
+        }
+    }
+
+    /**
+     * Command "perft N", where N is the first group of MAT: report the
+     * number of positions N moves from the current one (see Perft), and
+     * how fast they were counted, using searchThreads() threads.
+     */
+    private void doPerft(Matcher mat) {
+        int depth;
+        try {
+            depth = Integer.parseInt(mat.group(1));
+        } catch (NumberFormatException excp) {
+            throw error("number too large");
+        }
+        long start = System.nanoTime();
+        long count = Perft.count(_board, depth, _searchThreads);
+        double millis = (System.nanoTime() - start) / 1e6;
+        _reporter.reportNote("perft %d: %d positions in %.1f ms"
+                             + " (%.0f positions/s)", depth, count, millis,
+                             count * 1e3 / Math.max(millis, 1e-3));
+    }
+
     /**
      * Dump the contents of the board on standard output.
      */
@@ -265,6 +381,9 @@ public final class Controller {
 
         _winner = _board.winner();
 
+        if (_winner != EMPTY) {
+            stopThinking();
+        }
         if (_winner == WHITE) {
             _reporter.reportNote("White wins.");
         }
@@ -277,10 +396,10 @@ public final class Controller {
         String player = matcher.group(1);
 
         if ("black".equalsIgnoreCase(player)) {
-            _black = _autoPlayerTemplate.create(BLACK, this);
+            setPlayer(BLACK, _autoPlayerTemplate.create(BLACK, this));
         }
         if ("white".equalsIgnoreCase(player)) {
-            _white = _autoPlayerTemplate.create(WHITE, this);
+            setPlayer(WHITE, _autoPlayerTemplate.create(WHITE, this));
         }
     }
 
@@ -288,10 +407,38 @@ public final class Controller {
         String player = matcher.group(1);
 
         if ("black".equalsIgnoreCase(player)) {
-            _black = _manualPlayerTemplate.create(BLACK, this);
+            setPlayer(BLACK, _manualPlayerTemplate.create(BLACK, this));
         }
         if ("white".equalsIgnoreCase(player)) {
-            _white = _manualPlayerTemplate.create(WHITE, this);
+            setPlayer(WHITE, _manualPlayerTemplate.create(WHITE, this));
+        }
+    }
+
+    /**
+     * Make PLAYER the player of SIDE (WHITE or BLACK), disposing of the
+     * Player it replaces, if any.
+     */
+    private void setPlayer(Piece side, Player player) {
+        Player old = side == WHITE ? _white : _black;
+        if (old != null) {
+            old.dispose();
+        }
+        if (side == WHITE) {
+            _white = player;
+        } else {
+            _black = player;
+        }
+    }
+
+    /**
+     * Stop any background work of both players (such as pondering).
+     */
+    private void stopThinking() {
+        if (_white != null) {
+            _white.stopThinking();
+        }
+        if (_black != null) {
+            _black.stopThinking();
         }
     }
 
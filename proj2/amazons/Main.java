@@ -1,6 +1,7 @@
 package amazons;
 
 import amazons.ai.AI;
+import amazons.ai.MCTS;
 import amazons.cli.NullView;
 import amazons.cli.TextPlayer;
 import amazons.cli.TextReporter;
@@ -24,15 +25,17 @@ import static amazons.Utils.error;
 public class Main {
 
     /**
-     * The main program.  ARGS may contain the option --display.
+     * The main program.  ARGS may contain the options --display and
+     * --mcts, which selects the Monte Carlo tree search AI.
      */
     public static void main(String... args) {
 
         CommandArgs options =
-                new CommandArgs("--display --log={0,1} --={0,2}", args);
+                new CommandArgs("--display --mcts --log={0,1} --={0,2}",
+                                args);
         if (!options.ok()) {
             System.err.println("Usage: java amazons.Main [--display]"
-                    + " [--log=FILE] [INPUT [OUTPUT]]");
+                    + " [--mcts] [--log=FILE] [INPUT [OUTPUT]]");
             System.exit(1);
         }
 
@@ -95,6 +98,8 @@ public class Main {
             }
         }
 
-        return new Controller(view, log, reporter, manualPlayer, new AI());
+        Player autoPlayer =
+                options.contains("--mcts") ? new MCTS() : new AI();
+        return new Controller(view, log, reporter, manualPlayer, autoPlayer);
     }
 }
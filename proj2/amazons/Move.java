@@ -5,12 +5,16 @@ import java.util.regex.Pattern;
 
 import static amazons.Square.SQ;
 import static amazons.Square.sq;
+import static amazons.Board.SIZE;
 
 /**
  * A move in the game of Amazons. As for Squares, Moves are immutable
  * and unique: there is only one move object for each possible move
  * (generated by the factory method  mv, the constructor being private).
- * As for Squares, you can freely use == to compare Moves.
+ * As for Squares, you can freely use == to compare Moves.  All the
+ * Moves whose piece move and spear throw are queen moves are created
+ * when the class is initialized, so Moves may be used from any thread.
+ * Internally, the engine represents moves as ints (see pack).
  *
  * @author P. N. Hilfinger
  */
@@ -27,41 +31,158 @@ public final class Move {
      */
     public static final Pattern MOVE_PATTERN = Pattern.compile(MOVE_PATTERN_SRTING);
     /**
-     * The cache of all Moves created.
+     * The number of squares.
      */
-    private static final Move[][][] MOVES = new Move[100][100][100];
+    private static final int SQUARES = SIZE * SIZE;
     /**
-     * A utility Matcher for moves, using MOVE_PATTERN.
+     * LINE_RANK[A * SQUARES + B] is the rank of the square with index B
+     * among the squares a queen move away from the square with index A,
+     * in order of index, or -1 if B is not a queen move from A.
      */
-    private static final Matcher _moveMatcher = MOVE_PATTERN.matcher("");
+    private static final byte[] LINE_RANK = new byte[SQUARES * SQUARES];
+    /**
+     * LINE_COUNT[A] is the number of squares a queen move from the square
+     * with index A.
+     */
+    private static final int[] LINE_COUNT = new int[SQUARES];
+    /**
+     * PAIR_START[A * SQUARES + B] is the index in MOVES of the first move
+     * from the square with index A to the one with index B, or -1 if B is
+     * not a queen move from A.
+     */
+    private static final int[] PAIR_START = new int[SQUARES * SQUARES];
+    /**
+     * Every Move whose piece move and spear throw are queen moves: the
+     * moves A-B(C) are at PAIR_START[A * SQUARES + B] + LINE_RANK[B *
+     * SQUARES + C].  Filled in once, when the class is initialized, so
+     * that threads may share it without synchronization.
+     */
+    private static final Move[] MOVES;
+
+    static {
+        for (int a = 0; a < SQUARES; a += 1) {
+            int count = 0;
+            for (int b = 0; b < SQUARES; b += 1) {
+                LINE_RANK[a * SQUARES + b] =
+                    (byte) (sq(a).isQueenMove(sq(b)) ? count++ : -1);
+            }
+            LINE_COUNT[a] = count;
+        }
+        int total = 0;
+        for (int ab = 0; ab < SQUARES * SQUARES; ab += 1) {
+            PAIR_START[ab] = LINE_RANK[ab] < 0 ? -1 : total;
+            if (LINE_RANK[ab] >= 0) {
+                total += LINE_COUNT[ab % SQUARES];
+            }
+        }
+        MOVES = new Move[total];
+        for (int a = 0; a < SQUARES; a += 1) {
+            for (int b = 0; b < SQUARES; b += 1) {
+                int start = PAIR_START[a * SQUARES + b];
+                if (start < 0) {
+                    continue;
+                }
+                for (int c = 0; c < SQUARES; c += 1) {
+                    int rank = LINE_RANK[b * SQUARES + c];
+                    if (rank >= 0) {
+                        MOVES[start + rank] = new Move(a, b, c);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Each thread's Matcher for moves, using MOVE_PATTERN.
+     */
+    private static final ThreadLocal<Matcher> MOVE_MATCHERS =
+            ThreadLocal.withInitial(() -> MOVE_PATTERN.matcher(""));
     /**
      * The components of a Move.
      */
     private final Square _from, _to, _spear;
     /**
-     * The printed form of a Move.
+     * My packed representation (see pack).
+     */
+    private final int _packed;
+    /**
+     * The printed form of a Move, or null until first needed.  Threads
+     * may race to compute it, but since Strings are immutable, each sees
+     * either null or a complete String.
      */
-    private final String _str;
+    private String _str;
 
     /**
-     * Construct the Move FROM-TO(SPEAR).
+     * Construct the Move FROM-TO(SPEAR), given as square indices.
      */
-    private Move(Square from, Square to, Square spear) {
-        _from = from;
-        _to = to;
-        _spear = spear;
-        _str = String.format("%s-%s(%s)", from, to, spear);
+    private Move(int from, int to, int spear) {
+        _from = sq(from);
+        _to = sq(to);
+        _spear = sq(spear);
+        _packed = pack(from, to, spear);
     }
 
     /**
-     * Return the unique Move FROM-TO(SPEAR).
+     * Return the unique Move FROM-TO(SPEAR), or null if TO is not a
+     * queen move from FROM or SPEAR is not a queen move from TO.
      */
     public static Move mv(Square from, Square to, Square spear) {
-        if (MOVES[from.index()][to.index()][spear.index()] == null) {
-            MOVES[from.index()][to.index()][spear.index()] =
-                    new Move(from, to, spear);
-        }
-        return MOVES[from.index()][to.index()][spear.index()];
+        return mv(from.index(), to.index(), spear.index());
+    }
+
+    /**
+     * Return the unique Move FROM-TO(SPEAR), given as square indices, or
+     * null if it is not made of queen moves.
+     */
+    private static Move mv(int from, int to, int spear) {
+        int start = PAIR_START[from * SQUARES + to];
+        int rank = LINE_RANK[to * SQUARES + spear];
+        return start < 0 || rank < 0 ? null : MOVES[start + rank];
+    }
+
+    /**
+     * Return the packed int representation of the move FROM-TO(SPEAR),
+     * given as square indices: FROM in bits 0-6, TO in bits 7-13, and
+     * SPEAR in bits 14-20.
+     */
+    public static int pack(int from, int to, int spear) {
+        return from | to << 7 | spear << 14;
+    }
+
+    /**
+     * Return the index of the square moved from in the packed move PACKED.
+     */
+    public static int fromIndex(int packed) {
+        return packed & 0x7f;
+    }
+
+    /**
+     * Return the index of the square moved to in the packed move PACKED.
+     */
+    public static int toIndex(int packed) {
+        return packed >>> 7 & 0x7f;
+    }
+
+    /**
+     * Return the index of the spear's square in the packed move PACKED.
+     */
+    public static int spearIndex(int packed) {
+        return packed >>> 14 & 0x7f;
+    }
+
+    /**
+     * Return the unique Move whose packed representation is PACKED, or
+     * null if it is not made of queen moves.
+     */
+    public static Move mv(int packed) {
+        return mv(fromIndex(packed), toIndex(packed), spearIndex(packed));
+    }
+
+    /**
+     * Return my packed representation (see pack).
+     */
+    public int pack() {
+        return _packed;
     }
 
     /**
@@ -70,15 +191,11 @@ public final class Move {
      * queen moves, and null otherwise.
      */
     public static Move mv(String str) {
-        _moveMatcher.reset(str);
-        if (_moveMatcher.matches()) {
-            int k = _moveMatcher.group(1) != null ? 1 : 4;
-            Square from = sq(_moveMatcher.group(k)),
-                    to = sq(_moveMatcher.group(k + 1)),
-                    spear = sq(_moveMatcher.group(k + 2));
-            if (from.isQueenMove(to) && to.isQueenMove(spear)) {
-                return mv(from, to, spear);
-            }
+        Matcher matcher = MOVE_MATCHERS.get().reset(str);
+        if (matcher.matches()) {
+            int k = matcher.group(1) != null ? 1 : 4;
+            return mv(sq(matcher.group(k)), sq(matcher.group(k + 1)),
+                      sq(matcher.group(k + 2)));
         }
         return null;
     }
@@ -88,8 +205,7 @@ public final class Move {
      * its piece-move and spear-throw are valid queen moves.
      */
     public static boolean isGrammaticalMove(String str) {
-        _moveMatcher.reset(str);
-        return _moveMatcher.matches();
+        return MOVE_MATCHERS.get().reset(str).matches();
     }
 
     /**
@@ -115,7 +231,11 @@ public final class Move {
 
     @Override
     public String toString() {
-        return _str;
+        String str = _str;
+        if (str == null) {
+            str = _str = String.format("%s-%s(%s)", _from, _to, _spear);
+        }
+        return str;
     }
 }
 
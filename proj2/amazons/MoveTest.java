@@ -0,0 +1,79 @@
+package amazons;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static amazons.Square.sq;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MoveTest {
+
+    @Test
+    public void uniqueMoves() {
+        Move move = Move.mv("d1-d7(g7)");
+        assertSame(move, Move.mv("d1 d7 g7"));
+        assertSame(move, Move.mv(sq("d1"), sq("d7"), sq("g7")));
+        assertSame(move, Move.mv(move.pack()));
+        assertEquals("d1-d7(g7)", move.toString());
+        assertSame(sq("d1"), move.from());
+        assertSame(sq("g7"), move.spear());
+        assertSame(Move.mv("a1-a2(a1)"), Move.mv("a1 a2 a1"));
+    }
+
+    @Test
+    public void onlyQueenMoves() {
+        assertNull(Move.mv("a1-b3(b4)"));
+        assertNull(Move.mv("a1-a3(b5)"));
+        assertNull(Move.mv("a1-a1(a2)"));
+        assertNull(Move.mv(sq("a1"), sq("a2"), sq("a2")));
+        assertNull(Move.mv("a1-a3"));
+        int count = 0;
+        for (int from = 0; from < 100; from += 1) {
+            for (int to = 0; to < 100; to += 1) {
+                for (int spear = 0; spear < 100; spear += 1) {
+                    Move move = Move.mv(Move.pack(from, to, spear));
+                    boolean valid = sq(from).isQueenMove(sq(to))
+                        && sq(to).isQueenMove(sq(spear));
+                    assertEquals(valid, move != null);
+                    if (move != null) {
+                        count += 1;
+                        assertEquals(Move.pack(from, to, spear), move.pack());
+                    }
+                }
+            }
+        }
+        assertTrue(count > Board.MAX_MOVES);
+    }
+
+    @Test
+    public void parseInParallel() throws InterruptedException {
+        String[] moves = { "d1-d7(g7)", "a4 a5 a6", "j7-h5(h1)", "g10 g2 a8" };
+        AtomicInteger errors = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t += 1) {
+            int first = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 20000; i += 1) {
+                    String str = moves[(first + i) % moves.length];
+                    Move move = Move.mv(str);
+                    if (move == null || !Move.isGrammaticalMove(str)
+                        || !Move.mv(move.toString()).equals(move)) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+    }
+}
@@ -0,0 +1,68 @@
+package amazons;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PerftTest {
+
+    /**
+     * A position after a few moves each.
+     */
+    static final String MIDDLE =
+            "   - - - B - - B - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - S - - - - S - -\n" +
+            "   B - - - S - - - - -\n" +
+            "   - - - - - - S - - B\n" +
+            "   - - - W - - - - - -\n" +
+            "   W - - - - S - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - W - - W\n";
+
+    @Test
+    public void initialPosition() {
+        Board board = new Board();
+        for (int depth = 0; depth <= 2; depth += 1) {
+            assertEquals(Perft.KNOWN[depth], Perft.count(board, depth));
+        }
+        assertEquals(Perft.KNOWN[2], Perft.count(board, 2, 4));
+        assertEquals(new Board().toString(), board.toString());
+    }
+
+    @Test
+    public void matchesLegalMoves() {
+        Board board = new Board(MIDDLE);
+        String before = board.toString();
+        long expected = countLegalMoves(board, 2);
+        assertEquals(expected, Perft.count(board, 2));
+        assertEquals(expected, Perft.count(board, 2, 3));
+        assertEquals(before, board.toString());
+    }
+
+    /**
+     * Return the number of positions DEPTH moves from BOARD, found
+     * with Board.legalMoves.
+     */
+    private static long countLegalMoves(Board board, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        List<Move> moves = new ArrayList<>();
+        for (Iterator<Move> i = board.legalMoves(); i.hasNext(); ) {
+            moves.add(i.next());
+        }
+        long total = 0;
+        for (Move move : moves) {
+            board.makeMove(move);
+            total += countLegalMoves(board, depth - 1);
+            board.undo();
+        }
+        return total;
+    }
+}
@@ -52,4 +52,21 @@ public abstract class Player {
      * is not null.
      */
     public abstract String myMove();
+
+    /**
+     * Stop any work I am doing in the background, such as thinking on my
+     * opponent's time.  Called when the game is over or restarted.  By
+     * default, does nothing.
+     */
+    public void stopThinking() {
+    }
+
+    /**
+     * Stop any work I am doing in the background and release the threads
+     * I hold, as when another Player replaces me.  By default, just calls
+     * stopThinking.
+     */
+    public void dispose() {
+        stopThinking();
+    }
 }
@@ -49,6 +49,74 @@ public final class Square {
         }
     }
 
+    /**
+     * The number of squares.
+     */
+    private static final int N = Board.SIZE * Board.SIZE;
+    /**
+     * RAYS[k][dir] contains the indices of the squares 1, 2, ... steps
+     * from the square with index K in direction DIR, nearest first.
+     */
+    private static final int[][][] RAYS = new int[N][8][];
+    /**
+     * DIRECTION[from * N + to] is the direction of the queen move
+     * FROM-TO (by square indices), or -1 if it is not a queen move.
+     */
+    private static final byte[] DIRECTION = new byte[N * N];
+    /**
+     * DISTANCE[from * N + to] is the number of steps in the queen move
+     * FROM-TO (by square indices), or 0 if it is not a queen move.
+     */
+    private static final byte[] DISTANCE = new byte[N * N];
+    /**
+     * BETWEEN_LO[from * N + to] and BETWEEN_HI[from * N + to] are the
+     * halves of the Bitboard set of squares strictly between FROM and TO
+     * (by square indices) on a queen move; empty if it is not one.
+     */
+    private static final long[] BETWEEN_LO = new long[N * N],
+            BETWEEN_HI = new long[N * N];
+    /**
+     * NEIGHBORS[k] contains the indices of the squares one king step
+     * from the square with index K.
+     */
+    private static final int[][] NEIGHBORS = new int[N][];
+
+    static {
+        Arrays.fill(DIRECTION, (byte) -1);
+        for (int from = 0; from < N; from += 1) {
+            int col = from % Board.SIZE, row = from / Board.SIZE;
+            for (int dir = 0; dir < 8; dir += 1) {
+                int len = 0;
+                while (exists(col + DIR[dir][0] * (len + 1),
+                        row + DIR[dir][1] * (len + 1))) {
+                    len += 1;
+                }
+                int[] ray = new int[len];
+                long lo = 0, hi = 0;
+                for (int i = 0; i < len; i += 1) {
+                    int to = (row + DIR[dir][1] * (i + 1)) * Board.SIZE
+                            + col + DIR[dir][0] * (i + 1);
+                    ray[i] = to;
+                    DIRECTION[from * N + to] = (byte) dir;
+                    DISTANCE[from * N + to] = (byte) (i + 1);
+                    BETWEEN_LO[from * N + to] = lo;
+                    BETWEEN_HI[from * N + to] = hi;
+                    lo |= Bitboard.bitLo(to);
+                    hi |= Bitboard.bitHi(to);
+                }
+                RAYS[from][dir] = ray;
+            }
+            int[] neighbors = new int[8];
+            int count = 0;
+            for (int dir = 0; dir < 8; dir += 1) {
+                if (RAYS[from][dir].length > 0) {
+                    neighbors[count++] = RAYS[from][dir][0];
+                }
+            }
+            NEIGHBORS[from] = Arrays.copyOf(neighbors, count);
+        }
+    }
+
     /**
      * My index position.
      */
@@ -150,18 +218,7 @@ public final class Square {
      * Return true iff THIS - TO is a valid queen move.
      */
     boolean isQueenMove(Square to) {
-        if (this == to) {
-            return false;
-        }
-
-        if (to.row() == this.row()) {
-            return true;
-        }
-        if (to.col() == this.col()) {
-            return true;
-        }
-        return to.col() + to.row() == col() + row() || to.col() - to.row() == col() - row();
-
+        return DIRECTION[_index * N + to._index] >= 0;
     }
 
     /**
@@ -184,29 +241,64 @@ public final class Square {
      */
     public int direction(Square to) {
         assert isQueenMove(to);
+        return DIRECTION[_index * N + to._index];
+    }
 
-        int rowDiff = to.row() - row();
-        int colDiff = to.col() - col();
+    /**
+     * Return the number of steps from me to TO in direction DIRECTION,
+     * 0 if TO is me, or -1 if TO is not in that direction from me.
+     */
+    int distance(Square to, int direction) {
+        if (to == this) {
+            return 0;
+        }
+        if (DIRECTION[_index * N + to._index] != direction) {
+            return -1;
+        }
+        return DISTANCE[_index * N + to._index];
+    }
 
-        int gcd = Math.abs(Utils.GCD(rowDiff, colDiff));
+    /**
+     * Return the indices of the squares 1, 2, ... steps from the square
+     * with index K in direction DIR, nearest first.  The result is shared
+     * and must not be modified.
+     */
+    public static int[] ray(int k, int dir) {
+        return RAYS[k][dir];
+    }
 
-        for (int i = 0, dirLength = DIR.length; i < dirLength; i++) {
-            int[] ints = DIR[i];
-            if (ints[0] == colDiff / gcd && ints[1] == rowDiff / gcd) {
-                return i;
-            }
-        }
+    /**
+     * Return the indices of the squares one king step from the square
+     * with index K.  The result is shared and must not be modified.
+     */
+    public static int[] neighbors(int k) {
+        return NEIGHBORS[k];
+    }
 
-        return -1;
+    /**
+     * Return the direction of the queen move between the squares with
+     * indices FROM and TO, or -1 if it is not a queen move.
+     */
+    public static int direction(int from, int to) {
+        return DIRECTION[from * N + to];
     }
 
-    int distance(Square to, int direction) {
-        for (int i = 0; i < Board.SIZE; i++) {
-            if (this.queenMove(direction, i) == to) {
-                return i;
-            }
-        }
-        return -1;
+    /**
+     * Return the LO half of the Bitboard set of squares strictly between
+     * the squares with indices FROM and TO, which is empty unless FROM-TO
+     * is a queen move.
+     */
+    public static long betweenLo(int from, int to) {
+        return BETWEEN_LO[from * N + to];
+    }
+
+    /**
+     * Return the HI half of the Bitboard set of squares strictly between
+     * the squares with indices FROM and TO, which is empty unless FROM-TO
+     * is a queen move.
+     */
+    public static long betweenHi(int from, int to) {
+        return BETWEEN_HI[from * N + to];
     }
 
     @Override
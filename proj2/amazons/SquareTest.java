@@ -108,4 +108,44 @@ public class SquareTest {
         assertEquals(6, Square.sq("j10").direction(Square.sq("c10")));
         assertEquals(7, Square.sq("j1").direction(Square.sq("b9")));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void distance() {
+        assertEquals(3, Square.sq("c3").distance(Square.sq("f3"), 2));
+        assertEquals(6, Square.sq("j10").distance(Square.sq("d4"), 5));
+        assertEquals(-1, Square.sq("j10").distance(Square.sq("d4"), 1));
+        assertEquals(-1, Square.sq("a1").distance(Square.sq("b3"), 0));
+        assertEquals(-1, Square.direction(Square.sq("a1").index(),
+                Square.sq("b3").index()));
+    }
+
+    @Test
+    public void rays() {
+        for (int k = 0; k < Board.SIZE * Board.SIZE; k += 1) {
+            for (int dir = 0; dir < 8; dir += 1) {
+                int[] ray = Square.ray(k, dir);
+                for (int i = 0; i < ray.length; i += 1) {
+                    assertSame(Square.sq(k).queenMove(dir, i + 1),
+                            Square.sq(ray[i]));
+                }
+                if (ray.length + 1 < Board.SIZE) {
+                    assertNull(Square.sq(k).queenMove(dir, ray.length + 1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void between() {
+        int a1 = Square.sq("a1").index(), d4 = Square.sq("d4").index();
+        long lo = Square.betweenLo(a1, d4), hi = Square.betweenHi(a1, d4);
+        assertEquals(2, Bitboard.count(lo, hi));
+        assertTrue(Bitboard.contains(lo, hi, Square.sq("b2").index()));
+        assertTrue(Bitboard.contains(lo, hi, Square.sq("c3").index()));
+        int a10 = Square.sq("a10").index();
+        assertEquals(8, Bitboard.count(Square.betweenLo(a1, a10),
+                Square.betweenHi(a1, a10)));
+        assertEquals(0, Bitboard.count(Square.betweenLo(a1, a1 + 1),
+                Square.betweenHi(a1, a1 + 1)));
+    }
+}
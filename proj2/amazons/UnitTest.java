@@ -1,6 +1,11 @@
 package amazons;
 
 import amazons.ai.AITest;
+import amazons.ai.EvaluationTest;
+import amazons.ai.MCTSTest;
+import amazons.ai.RegionsTest;
+import amazons.ai.TournamentTest;
+import amazons.ai.TranspositionTableTest;
 import org.junit.Test;
 import ucb.junit.textui;
 
@@ -43,7 +48,15 @@ public class UnitTest {
         textui.runClasses(UnitTest.class);
         textui.runClasses(BoardTest.class);
         textui.runClasses(SquareTest.class);
+        textui.runClasses(MoveTest.class);
+        textui.runClasses(BitboardTest.class);
+        textui.runClasses(PerftTest.class);
         textui.runClasses(AITest.class);
+        textui.runClasses(TranspositionTableTest.class);
+        textui.runClasses(EvaluationTest.class);
+        textui.runClasses(RegionsTest.class);
+        textui.runClasses(MCTSTest.class);
+        textui.runClasses(TournamentTest.class);
     }
 
     /**
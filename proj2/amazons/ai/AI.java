@@ -6,7 +6,11 @@ package amazons.ai;
 
 import amazons.*;
 
-import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A Player that automatically generates moves.
@@ -17,58 +21,505 @@ public class AI extends Player {
      * A position magnitude indicating a win (for white if positive, black
      * if negative).
      */
-    private static final int WINNING_VALUE = Integer.MAX_VALUE - 1;
+    static final int WINNING_VALUE = Integer.MAX_VALUE - 1;
     /**
      * A magnitude greater than a normal value.
      */
-    private static final int INFINITY = Integer.MAX_VALUE;
+    static final int INFINITY = Integer.MAX_VALUE;
     /**
-     * The move found by the last call to one of the ...FindMove methods
-     * below.
+     * Log2 of the number of entries in a transposition table.
      */
-    private Move _lastFoundMove;
+    private static final int TABLE_LOG_SIZE = 20;
+    /**
+     * The longest a ponder may run, in milliseconds, in case my opponent
+     * never moves.
+     */
+    private static final long PONDER_LIMIT = 10 * 60 * 1000;
+    /**
+     * Results of earlier searches, shared by all my searches and search
+     * threads (created on first use).
+     */
+    private TranspositionTable _table;
+    /**
+     * Set to stop my helper search threads.
+     */
+    private final AtomicBoolean _stop = new AtomicBoolean();
+    /**
+     * My searchers: the first runs on the thread that calls findMove, and
+     * the others on _helpers, each with its own copy of the board.
+     */
+    private Searcher[] _searchers = new Searcher[0];
+    /**
+     * The boards searched by _searchers[1 ..].
+     */
+    private Board[] _boards = new Board[0];
+    /**
+     * Threads for _searchers[1 ..], or null if there are none.
+     */
+    private ExecutorService _helpers;
+    /**
+     * The parallel search strategy I use.
+     */
+    private final Engine _engine;
+    /**
+     * The evaluation my searches copy.
+     */
+    private final Evaluation _evaluation;
+    /**
+     * My Young Brothers Wait search, if my engine is YOUNG_BROTHERS_WAIT
+     * and I have searched.
+     */
+    private ForkJoinSearch _forkJoin;
+    /**
+     * True iff my searches treat the queen move and the arrow as separate
+     * levels (see Searcher.findMoveByHalves).
+     */
+    private boolean _splitPly = Boolean.getBoolean("amazons.splitPly");
+    /**
+     * My ponder search (created on first use).
+     */
+    private Searcher _ponderer;
+    /**
+     * The position _ponderer searches.
+     */
+    private Board _ponderBoard;
+    /**
+     * Set to stop _ponderer.
+     */
+    private final AtomicBoolean _ponderStop = new AtomicBoolean();
+    /**
+     * The thread running my ponder search, or null if I have not
+     * pondered.
+     */
+    private ExecutorService _ponderThread;
+    /**
+     * My ponder search in progress, or null if none.
+     */
+    private Future<?> _pondering;
+    /**
+     * The number of my searches that followed a ponder, and of those
+     * whose position was the one the ponder expected.
+     */
+    private int _ponders, _ponderHits;
+    /**
+     * The number of positions visited by my last search.
+     */
+    private long _lastNodes;
+    /**
+     * The depth of the last completed iteration of my last search.
+     */
+    private int _completedDepth;
+    /**
+     * The number of cutoffs in my last search, and of those caused by
+     * the first move tried.
+     */
+    private long _cutoffs, _firstMoveCutoffs;
+
+    /**
+     * Strategies for searching with more than one thread.
+     */
+    public enum Engine {
+        /**
+         * Independent searches sharing a transposition table (see
+         * findMove).
+         */
+        LAZY_SMP,
+        /**
+         * A single search whose younger brothers are searched in parallel
+         * (see ForkJoinSearch).
+         */
+        YOUNG_BROTHERS_WAIT
+    }
 
     /**
      * A new AI with no piece or controller (intended to produce
-     * a template).
+     * a template), using the LAZY_SMP engine.
      */
     public AI() {
-        this(null, null);
+        this(Engine.LAZY_SMP);
+    }
+
+    /**
+     * A new AI with no piece or controller (intended to produce
+     * a template), using ENGINE to search in parallel and the
+     * Evaluation given by the system property amazons.eval.
+     */
+    public AI(Engine engine) {
+        this(engine, Evaluation.fromProperties());
     }
 
     /**
-     * A new AI playing PIECE under control of CONTROLLER.
+     * A new AI with no piece or controller (intended to produce
+     * a template), using ENGINE to search in parallel and EVALUATION to
+     * score positions.
      */
-    private AI(Piece piece, Controller controller) {
+    AI(Engine engine, Evaluation evaluation) {
+        this(null, null, engine, evaluation);
+    }
+
+    /**
+     * A new AI playing PIECE under control of CONTROLLER, using ENGINE
+     * and EVALUATION.
+     */
+    private AI(Piece piece, Controller controller, Engine engine,
+               Evaluation evaluation) {
         super(piece, controller);
+        _engine = engine;
+        _evaluation = evaluation;
     }
 
     @Override
     public Player create(Piece piece, Controller controller) {
-        return new AI(piece, controller);
+        AI ai = new AI(piece, controller, _engine, _evaluation);
+        ai._splitPly = _splitPly;
+        return ai;
+    }
+
+    /**
+     * Search the queen move and the arrow of each move as separate levels
+     * iff ON.  Initially, this is set by the system property
+     * amazons.splitPly.  The YOUNG_BROTHERS_WAIT engine ignores it.
+     */
+    void setSplitPly(boolean on) {
+        _splitPly = on;
     }
 
     @Override
     public String myMove() {
         Move move = findMove();
         _controller.reportMove(move);
+        if (_controller.pondering()) {
+            Board after = new Board(board());
+            after.makeMove(move);
+            if (after.winner() == Piece.EMPTY) {
+                ponder(after);
+            }
+        }
         return move.toString();
     }
 
     /**
      * Return a move for me from the current position, assuming there
-     * is a move.
+     * is a move.  If I pondered this position (see ponder), starts
+     * deepening just below the depth the ponder reached.
      */
     private Move findMove() {
         Board b = board();
-        if (_myPiece == Piece.WHITE) {
-            // MAX NODE
-            findMove(b, maxDepth(b), true, 1, -INFINITY, INFINITY);
+        long budget = _controller.timeBudget();
+        int limit = budget > 0 ? TranspositionTable.MAX_DEPTH : maxDepth(b);
+        int first = budget > 0 ? 1 : limit;
+        if (_pondering != null) {
+            stopPondering();
+            _ponders += 1;
+            int pondered = ponderDepth(b);
+            if (pondered > 0) {
+                _ponderHits += 1;
+                first = Math.max(first, Math.min(limit, pondered - 1));
+            }
+        }
+        return findMove(b, first, limit, budget,
+                        _controller.searchThreads());
+    }
+
+    /**
+     * Start searching BOARD, the position after one of my moves, in the
+     * background, until stopPondering is called.  The search shares my
+     * transposition table, so that whatever reply my opponent makes, my
+     * next search finds the results of the ponder for the positions it
+     * reaches.  Those for the expected reply (the ponder's best move)
+     * are the deepest.
+     */
+    void ponder(Board board) {
+        stopPondering();
+        if (board.winner() != Piece.EMPTY) {
+            return;
+        }
+        if (_table == null) {
+            _table = new TranspositionTable(TABLE_LOG_SIZE);
+        }
+        if (_ponderer == null) {
+            _ponderer = new Searcher(_table, _ponderStop, _evaluation.copy());
+            _ponderBoard = new Board();
+            _ponderThread = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "amazons-ponder");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        _ponderBoard.copy(board);
+        _ponderer.setSplitPly(_splitPly);
+        _ponderStop.set(false);
+        long deadline = System.nanoTime() + PONDER_LIMIT * 1_000_000L;
+        _table.newSearch();
+        _pondering = _ponderThread.submit(() -> _ponderer.run(_ponderBoard,
+            1, TranspositionTable.MAX_DEPTH, 0, deadline, false, 0));
+    }
+
+    /**
+     * Stop my ponder search, if any, and wait for it to finish.
+     */
+    void stopPondering() {
+        if (_pondering == null) {
+            return;
+        }
+        _ponderStop.set(true);
+        try {
+            _pondering.get();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException excp) {
+            throw new IllegalStateException(excp.getCause());
+        }
+        _pondering = null;
+    }
+
+    @Override
+    public void stopThinking() {
+        stopPondering();
+    }
+
+    @Override
+    public void dispose() {
+        stopPondering();
+        if (_ponderThread != null) {
+            _ponderThread.shutdown();
+            _ponderThread = null;
+            _ponderer = null;
+        }
+        if (_helpers != null) {
+            _helpers.shutdown();
+            _helpers = null;
+        }
+        _searchers = new Searcher[0];
+        if (_forkJoin != null) {
+            _forkJoin.shutdown();
+            _forkJoin = null;
+        }
+    }
+
+    /**
+     * Return the reply (packed) my last ponder expected, or 0 if it
+     * completed no depth.  Valid once the ponder is stopped.
+     */
+    int expectedReply() {
+        return _ponderer == null ? 0 : _ponderer.bestMove();
+    }
+
+    /**
+     * Return the depth completed by my last ponder if BOARD is its
+     * position followed by expectedReply(), and otherwise 0.  Valid once
+     * the ponder is stopped.
+     */
+    int ponderDepth(Board board) {
+        int reply = expectedReply();
+        if (reply == 0 || board.numMoves() != _ponderBoard.numMoves() + 1
+            || board.lastMoves(1).get(0).pack() != reply) {
+            return 0;
+        }
+        Board before = new Board(board);
+        before.undo();
+        return before.key() == _ponderBoard.key()
+            ? _ponderer.completedDepth() : 0;
+    }
+
+    /**
+     * Return the fraction of my searches following a ponder whose
+     * position the ponder expected, or 0 if I have not pondered.
+     */
+    double ponderHitRate() {
+        return _ponders == 0 ? 0.0 : (double) _ponderHits / _ponders;
+    }
+
+    /**
+     * Return a move for the side to move on BOARD, assuming there is one,
+     * searching with THREADS threads.  If BUDGET is 0, searches to depth
+     * LIMIT.  Otherwise, searches by iterative deepening until BUDGET
+     * milliseconds run out: a new depth is not started once half the
+     * budget (the soft deadline) is spent, and a search still running at
+     * the end of the budget (the hard deadline) is abandoned in favor of
+     * the result of the last completed depth.
+     *
+     * <p>With more than one thread, the search is a Lazy SMP search: each
+     * helper thread runs its own iterative deepening on its own copy of
+     * BOARD, starting at depth 1 or 2 and with its root moves in a
+     * different order, and all share my transposition table.  The helpers
+     * add nothing but entries in the table, which cut off and order the
+     * main search.  The result is that of the deepest completed search,
+     * preferring the main one.  With the YOUNG_BROTHERS_WAIT engine,
+     * the search is instead a ForkJoinSearch.
+     */
+    Move findMove(Board board, int limit, long budget, int threads) {
+        return findMove(board, budget > 0 ? 1 : limit, limit, budget,
+                        threads);
+    }
+
+    /**
+     * As for findMove(BOARD, LIMIT, BUDGET, THREADS), but starting the
+     * iterative deepening at depth FIRST.  Depth 1 is always completed.
+     * A deeper first depth (after a ponder hit) is held to the hard
+     * deadline like any other; if it is cut off, the result is the move
+     * the table held for BOARD beforehand (the ponder's best reply), or
+     * failing that, that of a depth-1 search.  Stops any ponder first.
+     */
+    Move findMove(Board board, int first, int limit, long budget,
+                  int threads) {
+        stopPondering();
+        long start = System.nanoTime();
+        long softDeadline = budget > 0 ? start + budget * 500_000L : 0;
+        long hardDeadline = budget > 0 ? start + budget * 1_000_000L : 0;
+        boolean conclude = first <= 1;
+        if (_table == null) {
+            _table = new TranspositionTable(TABLE_LOG_SIZE);
+        }
+        int fallback = 0;
+        if (!conclude) {
+            long entry = _table.probe(board.key());
+            if (entry != TranspositionTable.MISS) {
+                fallback = TranspositionTable.move(entry);
+            }
+        }
+        _table.newSearch();
+        if (_engine == Engine.YOUNG_BROTHERS_WAIT) {
+            if (_forkJoin == null || _forkJoin.threads() != threads) {
+                if (_forkJoin != null) {
+                    _forkJoin.shutdown();
+                }
+                _forkJoin = new ForkJoinSearch(_table, _stop, threads,
+                                               _evaluation);
+            }
+            _stop.set(false);
+            _forkJoin.run(board, first, limit, softDeadline, hardDeadline,
+                          conclude);
+            _lastNodes = _forkJoin.nodes();
+            _cutoffs = _firstMoveCutoffs = 0;
+            _completedDepth = _forkJoin.completedDepth();
+            return result(board, _forkJoin.bestMove(), fallback);
+        }
+        startHelpers(threads);
+        for (Searcher searcher : _searchers) {
+            searcher.setSplitPly(_splitPly);
+        }
+        _stop.set(false);
+        Future<?>[] helping = new Future<?>[threads];
+        for (int i = 1; i < threads; i += 1) {
+            Searcher searcher = _searchers[i];
+            Board copy = _boards[i];
+            copy.copy(board);
+            int depth = 1 + (i & 1), rotation = i * 97;
+            helping[i] = _helpers.submit(() -> searcher.run(copy, depth,
+                limit, 0, hardDeadline, false, rotation));
+        }
+        _searchers[0].run(board, first, limit, softDeadline, hardDeadline,
+                          conclude, 0);
+        _stop.set(true);
+        Searcher best = _searchers[0];
+        _lastNodes = best.nodes();
+        _cutoffs = best.order().cutoffs();
+        _firstMoveCutoffs = best.order().firstMoveCutoffs();
+        for (int i = 1; i < threads; i += 1) {
+            try {
+                helping[i].get();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException excp) {
+                throw new IllegalStateException(excp.getCause());
+            }
+            Searcher searcher = _searchers[i];
+            _lastNodes += searcher.nodes();
+            _cutoffs += searcher.order().cutoffs();
+            _firstMoveCutoffs += searcher.order().firstMoveCutoffs();
+            if (searcher.completedDepth() > best.completedDepth()) {
+                best = searcher;
+            }
+        }
+        _completedDepth = best.completedDepth();
+        return result(board, best.bestMove(), fallback);
+    }
+
+    /**
+     * Return the Move for packed MOVE, the result of a search of BOARD.
+     * If MOVE is 0 (no depth was completed), return instead FALLBACK, if
+     * it is legal on BOARD, or else the result of a depth-1 search.
+     */
+    private Move result(Board board, int move, int fallback) {
+        if (move != 0) {
+            return Move.mv(move);
+        }
+        Move chosen = fallback == 0 ? null : Move.mv(fallback);
+        if (chosen != null && board.isLegal(chosen)) {
+            return chosen;
+        }
+        Searcher searcher =
+            new Searcher(_table, new AtomicBoolean(), _evaluation.copy());
+        searcher.run(board, 1, 1, 0, 0, true, 0);
+        return Move.mv(searcher.bestMove());
+    }
+
+    /**
+     * Give me an empty transposition table, allocating it if I have none
+     * yet, so that my next search neither inherits entries nor pays for
+     * the allocation.
+     */
+    void clearTable() {
+        stopPondering();
+        if (_table == null) {
+            _table = new TranspositionTable(TABLE_LOG_SIZE);
         } else {
-            // MIN NODE
-            findMove(b, maxDepth(b), true, -1, -INFINITY, INFINITY);
+            _table.clear();
+        }
+    }
+
+    /**
+     * Return the depth of the last completed iteration of my last
+     * search.
+     */
+    int completedDepth() {
+        return _completedDepth;
+    }
+
+    /**
+     * Return the number of positions visited by my last search, in all
+     * threads.
+     */
+    long lastNodes() {
+        return _lastNodes;
+    }
+
+    /**
+     * Return the fraction of the cutoffs in my last search that were
+     * caused by the first move tried at their node, or 0 if there were
+     * none (or if my engine does not count them).  The closer to 1, the
+     * better the move ordering.
+     */
+    double firstMoveCutoffRate() {
+        return _cutoffs == 0 ? 0.0 : (double) _firstMoveCutoffs / _cutoffs;
+    }
+
+    /**
+     * Make sure that I have THREADS searchers, all but the first with
+     * their own board and thread.
+     */
+    private void startHelpers(int threads) {
+        if (_searchers.length == threads) {
+            return;
+        }
+        if (_helpers != null) {
+            _helpers.shutdown();
+            _helpers = null;
+        }
+        _searchers = new Searcher[threads];
+        _boards = new Board[threads];
+        for (int i = 0; i < threads; i += 1) {
+            _searchers[i] = new Searcher(_table, _stop, _evaluation.copy());
+            _boards[i] = new Board();
+        }
+        if (threads > 1) {
+            _helpers = Executors.newFixedThreadPool(threads - 1, r -> {
+                Thread t = new Thread(r, "amazons-search");
+                t.setDaemon(true);
+                return t;
+            });
         }
-        return _lastFoundMove;
     }
 
     private static final int[] BOUNDS = new int[]{
@@ -76,7 +527,28 @@ public class AI extends Player {
     };
 
     /**
-     * Return a heuristic value for BOARD.
+     * SURROUND_PENALTY[C] is the amount staticScore charges a white queen
+     * with C of its 8 neighboring squares occupied or off the board:
+     * powers of 3, but steeper when the queen has one way out (7) or
+     * none (8).  SURROUND_BONUS[C] is the amount it credits for a black
+     * queen so surrounded, with powers of 2 below 7.
+     */
+    private static final int[] SURROUND_PENALTY = new int[9],
+        SURROUND_BONUS = new int[9];
+
+    static {
+        for (int c = 0; c < 9; c += 1) {
+            SURROUND_PENALTY[c] =
+                c == 8 ? pow(5, c) : c == 7 ? pow(4, c) : pow(3, c);
+            SURROUND_BONUS[c] =
+                c == 8 ? pow(5, c) : c == 7 ? pow(4, c) : pow(2, c);
+        }
+    }
+
+    /**
+     * Return a heuristic value for BOARD, based on the number of occupied
+     * squares around each queen.  This is the "surround" component of an
+     * Evaluation.  Visits just the queens, through the Board's queen sets.
      */
     public static int staticScore(Board board) {
         Piece winner = board.winner();
@@ -85,44 +557,38 @@ public class AI extends Player {
         } else if (winner == Piece.BLACK) {
             return -WINNING_VALUE;
         }
-        int score = 0;
-
-        Iterator<Square> iterator = Square.iterator();
-        while (iterator.hasNext()) {
-            Square currentSquare = iterator.next();
-            Piece piece = board.get(currentSquare);
-
-            if (piece == Piece.EMPTY || piece == Piece.SPEAR) {
-                continue;
-            }
+        long occLo = board.occupiedLo(), occHi = board.occupiedHi();
+        return surroundScore(board.queensLo(Piece.BLACK),
+                             board.queensHi(Piece.BLACK),
+                             occLo, occHi, SURROUND_BONUS)
+            - surroundScore(board.queensLo(Piece.WHITE),
+                            board.queensHi(Piece.WHITE),
+                            occLo, occHi, SURROUND_PENALTY);
+    }
 
-            if (piece == Piece.WHITE) {
-                // me
-                int count = surroundBy(board, currentSquare);
-                if (count == 8) {
-                    // it cannot move
-                    score -= pow(5, count);
-                } else if (count == 7) {
-                    // only one way out, urgent here
-                    score -= pow(4, count);
-                } else {
-                    score -= pow(3, count);
-                }
+    /**
+     * Return the sum of VALUES[C] over the queens in the set (LO, HI),
+     * where C is the number of squares around the queen that are
+     * occupied, according to (OCCLO, OCCHI), or off the board.
+     */
+    private static int surroundScore(long lo, long hi, long occLo,
+                                     long occHi, int[] values) {
+        int score = 0;
+        while ((lo | hi) != 0) {
+            int k = Bitboard.first(lo, hi);
+            if (k < 64) {
+                lo &= lo - 1;
             } else {
-                // opponent
-                int count = surroundBy(board, currentSquare);
-                if (count == 8) {
-                    // it cannot move
-                    score += pow(5, count);
-                } else if (count == 7) {
-                    score += pow(4, count);
-                } else {
-                    score += pow(2, count);
+                hi &= hi - 1;
+            }
+            int surroundBy = 8;
+            for (int n : Square.neighbors(k)) {
+                if (!Bitboard.contains(occLo, occHi, n)) {
+                    surroundBy -= 1;
                 }
             }
-
+            score += values[surroundBy];
         }
-
         return score;
     }
 
@@ -134,83 +600,6 @@ public class AI extends Player {
         return res;
     }
 
-    private static int surroundBy(Board board, Square currentSquare) {
-        int surroundBy = 0;
-        for (int i = 0; i < 8; i++) {
-            Square surroundSquare = currentSquare.queenMove(i, 1);
-            if (surroundSquare == null) {
-                surroundBy += 1;
-                continue;
-            }
-            Piece surroundPiece = board.get(surroundSquare);
-
-            if (surroundPiece != Piece.EMPTY) {
-                surroundBy += 1;
-            }
-        }
-        return surroundBy;
-    }
-
-    /**
-     * Find a move from position BOARD and return its value, recording
-     * the move found in _lastFoundMove iff SAVEMOVE. The move
-     * should have maximal value or have value > BETA if SENSE==1,
-     * and minimal value or value < ALPHA if SENSE==-1. Searches up to
-     * DEPTH levels.  Searching at level 0 simply returns a static estimate
-     * of the board value and does not set _lastMoveFound.
-     */
-    private int findMove(Board board, int depth, boolean saveMove, int sense, int alpha, int beta) {
-        if (depth == 0 || board.winner() == Piece.WHITE || board.winner() == Piece.BLACK) {
-            return staticScore(board);
-        }
-        if (sense == 1) {
-            // MAX NODE
-            int value = -INFINITY;
-            Iterator<Move> moveIterator = board.legalMoves(_myPiece);
-            while (moveIterator.hasNext()) {
-                Move move = moveIterator.next();
-                board.makeMove(move);
-                _myPiece = _myPiece.opponent();
-                int currentMoveValue = findMove(board, depth - 1, false, -sense, alpha, beta);
-                _myPiece = _myPiece.opponent();
-                board.undo();
-                if (currentMoveValue > value) {
-                    value = currentMoveValue;
-                    if (saveMove) {
-                        _lastFoundMove = move;
-                    }
-                }
-                alpha = Math.max(alpha, value);
-                if (alpha >= beta) {
-                    break;
-                }
-            }
-            return value;
-        } else {
-            int value = INFINITY;
-            Iterator<Move> moveIterator = board.legalMoves(_myPiece);
-            while (moveIterator.hasNext()) {
-                Move move = moveIterator.next();
-                board.makeMove(move);
-                _myPiece = _myPiece.opponent();
-                int currentMoveValue = findMove(board, depth - 1, false, -sense, alpha, beta);
-                _myPiece = _myPiece.opponent();
-                board.undo();
-                if (currentMoveValue < value) {
-                    value = currentMoveValue;
-                    if (saveMove) {
-                        _lastFoundMove = move;
-                    }
-                }
-                alpha = Math.min(alpha, value);
-                if (alpha >= beta) {
-                    break;
-                }
-            }
-            return value;
-        }
-    }
-
     /**
      * Return a heuristically determined maximum search depth
      * based on characteristics of BOARD.
@@ -2,15 +2,33 @@ package amazons.ai;
 
 import amazons.Board;
 import amazons.Move;
+import amazons.Piece;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class AITest {
 
+    /**
+     * White has ten queens, more than Board.MAX_QUEEN_MOVES allows for.
+     */
+    static final String MANY_QUEENS =
+            "   - - - - - - - - - B\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - W - - - - W - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - W - - W - W - - W\n" +
+            "   - - - - - - - - - -\n" +
+            "   W - - W - - - - W -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - W - - - - -\n" +
+            "   - - - - - - - - - -\n";
+
     @Test
     @Ignore
     public void staticScore() {
@@ -105,4 +123,159 @@ public class AITest {
         board.makeMove(chosen);
         System.out.println(board);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void surroundScore() {
+        Board board = new Board(
+            "   - - - - - - - - - B\n"
+            + "   - - - - - - - - - -\n"
+            + "   - - - - - - - - - -\n"
+            + "   - - - - - - - - - -\n"
+            + "   - - - - - - - - - -\n"
+            + "   - - - - - - - - - -\n"
+            + "   - - - - - - - - - -\n"
+            + "   - - - - - - - - - -\n"
+            + "   S S - - - - - - - -\n"
+            + "   W - - - - - - - - -\n");
+        assertEquals(32 - 16384, AI.staticScore(board));
+        board.put(Piece.SPEAR, 'b', 1);
+        assertEquals(-AI.WINNING_VALUE, AI.staticScore(board));
+    }
+
+    @Test
+    public void parallelSearch() {
+        Board board = new Board();
+        board.makeMove(Move.mv("d1-d7(g7)"));
+        String before = board.toString();
+
+        AI single = new AI();
+        Move expected = single.findMove(board, 2, 0, 1);
+        assertEquals(2, single.completedDepth());
+
+        AI parallel = new AI();
+        Move found = parallel.findMove(board, 2, 0, 4);
+        assertEquals(2, parallel.completedDepth());
+        assertTrue(board.isLegal(found));
+        assertEquals(before, board.toString());
+        assertTrue(board.isLegal(expected));
+
+        AI forkJoin = new AI(AI.Engine.YOUNG_BROTHERS_WAIT);
+        found = forkJoin.findMove(board, 2, 0, 1);
+        assertEquals(expected.toString(), found.toString());
+        found = forkJoin.findMove(board, 2, 0, 4);
+        assertEquals(2, forkJoin.completedDepth());
+        assertTrue(board.isLegal(found));
+        assertEquals(before, board.toString());
+    }
+
+    @Test
+    public void splitPlySearch() {
+        Board board = new Board();
+        board.makeMove(Move.mv("d1-d7(g7)"));
+        board.makeMove(Move.mv("a7-b7(b2)"));
+        int[] values = new int[2];
+        for (int mode = 0; mode < 2; mode++) {
+            Searcher searcher =
+                new Searcher(new TranspositionTable(16), new AtomicBoolean(),
+                             new Evaluation(Evaluation.DEFAULT_SPEC));
+            searcher.setSplitPly(mode == 1);
+            searcher.run(board, 1, 2, 0, 0, true, 0);
+            assertEquals(2, searcher.completedDepth());
+            assertTrue(board.isLegal(Move.mv(searcher.bestMove())));
+            values[mode] = searcher.bestValue();
+        }
+        assertEquals(values[0], values[1]);
+    }
+
+    @Test
+    public void manyQueens() {
+        Board board = new Board(MANY_QUEENS);
+        int[] queenMoves = new int[board.maxQueenMoves(Piece.WHITE)];
+        assertTrue(board.generateQueenMoves(Piece.WHITE, queenMoves, 0)
+                   > Board.MAX_QUEEN_MOVES);
+        for (int mode = 0; mode < 2; mode++) {
+            Searcher searcher =
+                new Searcher(new TranspositionTable(16), new AtomicBoolean(),
+                             new Evaluation(Evaluation.DEFAULT_SPEC));
+            searcher.setSplitPly(mode == 1);
+            searcher.run(board, 1, 1, 0, 0, true, 0);
+            assertTrue(board.isLegal(Move.mv(searcher.bestMove())));
+        }
+    }
+
+    @Test
+    public void pondering() throws InterruptedException {
+        Board board = new Board();
+        board.makeMove(Move.mv("d1-d7(g7)"));
+        AI ai = new AI();
+        ai.ponder(board);
+        Thread.sleep(200);
+        ai.stopPondering();
+        int reply = ai.expectedReply();
+        assertTrue(reply != 0);
+        assertTrue(board.isLegal(Move.mv(reply)));
+
+        board.makeMove(Move.mv(reply));
+        int depth = ai.ponderDepth(board);
+        assertTrue(depth >= 1);
+        Move found = ai.findMove(board, Math.max(1, depth - 1), 2, 500, 1);
+        assertTrue(board.isLegal(found));
+        board.undo();
+
+        Board other = new Board(board);
+        Move miss = Move.mv("d10-d8(d9)");
+        if (miss.pack() == reply) {
+            miss = Move.mv("g10-g8(g9)");
+        }
+        other.makeMove(miss);
+        assertEquals(0, ai.ponderDepth(other));
+        assertEquals(0, ai.ponderDepth(board));
+    }
+
+    @Test
+    public void deepFirstDepthKeepsDeadline() {
+        Board board = new Board();
+        board.makeMove(Move.mv("d1-d7(g7)"));
+        for (AI.Engine engine : AI.Engine.values()) {
+            AI ai = new AI(engine);
+            long start = System.nanoTime();
+            Move found = ai.findMove(board, 6, 6, 50, 1);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(board.isLegal(found));
+            assertTrue("took " + millis + " ms", millis < 5_000);
+        }
+    }
+
+    @Test
+    public void disposeStopsPondering() throws InterruptedException {
+        int before = ponderThreads();
+        Board finished = new Board(MCTSTest.TRAPPED);
+        finished.makeMove(Move.mv("d9-b9(c9)"));
+        AI ai = new AI();
+        ai.ponder(finished);
+        assertEquals(before, ponderThreads());
+
+        Board board = new Board();
+        board.makeMove(Move.mv("d1-d7(g7)"));
+        ai.ponder(board);
+        assertEquals(before + 1, ponderThreads());
+        ai.dispose();
+        for (int i = 0; i < 200 && ponderThreads() > before; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(before, ponderThreads());
+    }
+
+    /**
+     * Return the number of live ponder threads.
+     */
+    private static int ponderThreads() {
+        int count = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.isAlive() && "amazons-ponder".equals(t.getName())) {
+                count += 1;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,289 @@
+package amazons.ai;
+
+import amazons.Bitboard;
+import amazons.Board;
+import amazons.Piece;
+
+import java.util.function.BooleanSupplier;
+
+import static amazons.ai.AI.WINNING_VALUE;
+
+/**
+ * A static evaluation of Amazons positions: a weighted sum of
+ * components, each positive when it favors white.  The components are
+ * <ul>
+ * <li> surround: AI.staticScore, which penalizes queens with occupied
+ *      neighbors;
+ * <li> queen: queen-distance territory, the number of empty squares
+ *      white can reach in fewer queen moves than black, less the number
+ *      black reaches first;
+ * <li> king: the same, for king moves;
+ * <li> mobility: the number of queen moves available to white's queens,
+ *      less the number available to black's;
+ * <li> regions: the number of moves white has left in regions it alone
+ *      occupies, less black's (see Regions).
+ * </ul>
+ * Each is weighted by an integer set by a specification string such as
+ * "queen=4,king=1,mobility=1" (omitted components have weight 0), so
+ * that components can be switched on and off, and tuned, without code
+ * changes.  The distances are computed by flood fills on the Board's
+ * bitboards, one level of distance at a time, and are not followed past
+ * MAX_LEVELS moves, so the cost of an evaluation is bounded regardless of
+ * the position.  When regions is on, a position in which no region is
+ * contested, and whose outcome is therefore known (see Regions.solve),
+ * scores as a win or loss.  An Evaluation keeps scratch state and is not
+ * thread-safe: each searching thread should use its own copy().
+ */
+final class Evaluation {
+
+    /**
+     * The specification used if the system property amazons.eval is not
+     * set: the original AI heuristic alone.
+     */
+    static final String DEFAULT_SPEC = "surround=1";
+    /**
+     * The component names, in the order of _weights.
+     */
+    static final String[] COMPONENTS = {
+        "surround", "queen", "king", "mobility", "regions"
+    };
+    /**
+     * The farthest distance, in moves, followed by the flood fills.
+     * Squares farther from both sides count for neither.
+     */
+    static final int MAX_LEVELS = 12;
+
+    /**
+     * Indices of the components in _weights.
+     */
+    private static final int SURROUND = 0, QUEEN = 1, KING = 2,
+        MOBILITY = 3, REGIONS = 4;
+
+    /**
+     * An Evaluation weighted according to SPEC, a comma-separated list
+     * of NAME=WEIGHT, where NAME is one of COMPONENTS.
+     */
+    Evaluation(String spec) {
+        _spec = spec;
+        for (String term : spec.split(",")) {
+            term = term.trim();
+            if (term.isEmpty()) {
+                continue;
+            }
+            int eq = term.indexOf('=');
+            int k = eq < 0 ? -1 : component(term.substring(0, eq).trim());
+            if (k < 0) {
+                throw new IllegalArgumentException("bad evaluation term: "
+                                                   + term);
+            }
+            try {
+                _weights[k] = Integer.parseInt(term.substring(eq + 1).trim());
+            } catch (NumberFormatException excp) {
+                throw new IllegalArgumentException("bad evaluation weight: "
+                                                   + term);
+            }
+        }
+    }
+
+    /**
+     * Return the Evaluation specified by the system property
+     * amazons.eval, or by DEFAULT_SPEC if it is not set.
+     */
+    static Evaluation fromProperties() {
+        return new Evaluation(System.getProperty("amazons.eval",
+                                                 DEFAULT_SPEC));
+    }
+
+    /**
+     * Return a new Evaluation with my weights.
+     */
+    Evaluation copy() {
+        return new Evaluation(_spec);
+    }
+
+    /**
+     * Return the weight of component NAME.
+     */
+    int weight(String name) {
+        return _weights[component(name)];
+    }
+
+    /**
+     * Have the regions component give up its exact search once STOP
+     * returns true (see Regions.setStop).
+     */
+    void setStop(BooleanSupplier stop) {
+        _regions.setStop(stop);
+    }
+
+    /**
+     * Return WINNING_VALUE or -WINNING_VALUE if the regions component is
+     * on and BOARD is decided for white or black, and otherwise
+     * Regions.UNDECIDED.
+     */
+    int solve(Board board) {
+        if (_weights[REGIONS] == 0) {
+            return Regions.UNDECIDED;
+        }
+        return _regions.solve(board);
+    }
+
+    /**
+     * Return the value of BOARD: WINNING_VALUE or -WINNING_VALUE if white
+     * or black has won (or, with the regions component, will win), and
+     * otherwise my weighted sum.
+     */
+    int score(Board board) {
+        Piece winner = board.winner();
+        if (winner == Piece.WHITE) {
+            return WINNING_VALUE;
+        } else if (winner == Piece.BLACK) {
+            return -WINNING_VALUE;
+        }
+        long score = 0;
+        if (_weights[REGIONS] != 0) {
+            int solved = _regions.solve(board);
+            if (solved != Regions.UNDECIDED) {
+                return solved;
+            }
+            score += (long) _weights[REGIONS]
+                * (_regions.moves(Piece.WHITE) - _regions.moves(Piece.BLACK));
+        }
+        if (_weights[SURROUND] != 0) {
+            score += (long) _weights[SURROUND] * AI.staticScore(board);
+        }
+        if (_weights[QUEEN] != 0) {
+            score += (long) _weights[QUEEN] * territory(board, true);
+        }
+        if (_weights[KING] != 0) {
+            score += (long) _weights[KING] * territory(board, false);
+        }
+        if (_weights[MOBILITY] != 0) {
+            score += (long) _weights[MOBILITY] * mobility(board);
+        }
+        return (int) Math.max(-WINNING_VALUE + 1,
+                              Math.min(WINNING_VALUE - 1, score));
+    }
+
+    /**
+     * Return the number of empty squares of BOARD that white reaches
+     * in fewer moves than black, less the number black reaches first,
+     * counting queen moves if QUEENMOVES and king moves otherwise.
+     */
+    int territory(Board board, boolean queenMoves) {
+        long emptyLo = ~board.occupiedLo(), emptyHi =
+            ~board.occupiedHi() & Bitboard.ALL_HI;
+        long whiteLo = board.queensLo(Piece.WHITE),
+            whiteHi = board.queensHi(Piece.WHITE),
+            blackLo = board.queensLo(Piece.BLACK),
+            blackHi = board.queensHi(Piece.BLACK);
+        long seenWhiteLo = 0, seenWhiteHi = 0,
+            seenBlackLo = 0, seenBlackHi = 0;
+        int result = 0;
+        for (int level = 1; level <= MAX_LEVELS; level += 1) {
+            step(whiteLo, whiteHi, emptyLo, emptyHi, queenMoves);
+            whiteLo = _stepLo & ~seenWhiteLo;
+            whiteHi = _stepHi & ~seenWhiteHi;
+            step(blackLo, blackHi, emptyLo, emptyHi, queenMoves);
+            blackLo = _stepLo & ~seenBlackLo;
+            blackHi = _stepHi & ~seenBlackHi;
+            if ((whiteLo | whiteHi | blackLo | blackHi) == 0) {
+                break;
+            }
+            seenWhiteLo |= whiteLo;
+            seenWhiteHi |= whiteHi;
+            seenBlackLo |= blackLo;
+            seenBlackHi |= blackHi;
+            result += Bitboard.count(whiteLo & ~seenBlackLo,
+                                     whiteHi & ~seenBlackHi)
+                - Bitboard.count(blackLo & ~seenWhiteLo,
+                                 blackHi & ~seenWhiteHi);
+        }
+        return result;
+    }
+
+    /**
+     * Return the number of queen moves (ignoring the spear) available to
+     * white's queens on BOARD, less the number available to black's.
+     */
+    int mobility(Board board) {
+        long emptyLo = ~board.occupiedLo(), emptyHi =
+            ~board.occupiedHi() & Bitboard.ALL_HI;
+        return queenMoves(board.queensLo(Piece.WHITE),
+                          board.queensHi(Piece.WHITE), emptyLo, emptyHi)
+            - queenMoves(board.queensLo(Piece.BLACK),
+                         board.queensHi(Piece.BLACK), emptyLo, emptyHi);
+    }
+
+    /**
+     * Return the total number of queen moves through the empty squares
+     * (EMPTYLO, EMPTYHI) from each of the squares in (LO, HI).
+     */
+    private int queenMoves(long lo, long hi, long emptyLo, long emptyHi) {
+        int result = 0;
+        while ((lo | hi) != 0) {
+            int k = Bitboard.first(lo, hi);
+            if (k < 64) {
+                lo &= lo - 1;
+            } else {
+                hi &= hi - 1;
+            }
+            step(Bitboard.bitLo(k), Bitboard.bitHi(k), emptyLo, emptyHi,
+                 true);
+            result += Bitboard.count(_stepLo, _stepHi);
+        }
+        return result;
+    }
+
+    /**
+     * Set (_stepLo, _stepHi) to the squares of (EMPTYLO, EMPTYHI) that
+     * are one move from a member of (LO, HI): a queen move through empty
+     * squares if QUEENMOVES, and otherwise a king move.
+     */
+    private void step(long lo, long hi, long emptyLo, long emptyHi,
+                      boolean queenMoves) {
+        long resultLo = 0, resultHi = 0;
+        for (int dir = 0; dir < 8; dir += 1) {
+            long frontLo = lo, frontHi = hi;
+            do {
+                long nextLo = Bitboard.shiftLo(frontLo, frontHi, dir) & emptyLo;
+                frontHi = Bitboard.shiftHi(frontLo, frontHi, dir) & emptyHi;
+                frontLo = nextLo;
+                resultLo |= frontLo;
+                resultHi |= frontHi;
+            } while (queenMoves && (frontLo | frontHi) != 0);
+        }
+        _stepLo = resultLo;
+        _stepHi = resultHi;
+    }
+
+    /**
+     * Return the index of component NAME in _weights, or -1 if there is
+     * none.
+     */
+    private static int component(String name) {
+        for (int k = 0; k < COMPONENTS.length; k += 1) {
+            if (COMPONENTS[k].equals(name)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * My specification.
+     */
+    private final String _spec;
+    /**
+     * Component weights, indexed as COMPONENTS.
+     */
+    private final int[] _weights = new int[COMPONENTS.length];
+    /**
+     * Region analysis, for the regions component.
+     */
+    private final Regions _regions = new Regions();
+    /**
+     * The result of the last step.
+     */
+    private long _stepLo, _stepHi;
+}
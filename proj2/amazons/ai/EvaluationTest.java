@@ -0,0 +1,79 @@
+package amazons.ai;
+
+import amazons.Board;
+import amazons.Move;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EvaluationTest {
+
+    /**
+     * White queen walled into the left two columns of the bottom
+     * three rows (a 6-square region, 5 of them empty) by 6 spears; black
+     * everywhere else.
+     */
+    static final String WALLED =
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - B - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   S S S - - - - - - -\n" +
+            "   - - S - - - - - - -\n" +
+            "   - - S - - - - - - -\n" +
+            "   W - S - - - - - - -\n";
+
+    @Test
+    public void initialPositionIsEven() {
+        Board board = new Board();
+        Evaluation eval = new Evaluation("queen=1,king=1,mobility=1");
+        assertEquals(0, eval.territory(board, true));
+        assertEquals(0, eval.territory(board, false));
+        assertEquals(0, eval.mobility(board));
+        assertEquals(0, eval.score(board));
+    }
+
+    @Test
+    public void territory() {
+        Board board = new Board(WALLED);
+        Evaluation eval = new Evaluation("queen=1");
+        int empty = 100 - 2 - 6;
+        assertEquals(5 - (empty - 5), eval.territory(board, true));
+        assertEquals(5 - (empty - 5), eval.territory(board, false));
+        assertEquals(4 - 31, eval.mobility(board));
+
+        board = new Board();
+        board.makeMove(Move.mv("d1-d5(d3)"));
+        assertTrue(eval.mobility(board) != 0);
+    }
+
+    @Test
+    public void components() {
+        Board board = new Board(WALLED);
+        Evaluation surround = new Evaluation(Evaluation.DEFAULT_SPEC);
+        assertEquals(AI.staticScore(board), surround.score(board));
+        assertEquals(1, surround.weight("surround"));
+        assertEquals(0, surround.weight("queen"));
+
+        Evaluation mixed = new Evaluation("queen=3, mobility=2");
+        assertEquals(3 * mixed.territory(board, true)
+                     + 2 * mixed.mobility(board), mixed.score(board));
+        assertEquals(mixed.score(board), mixed.copy().score(board));
+    }
+
+    @Test
+    public void badSpec() {
+        for (String spec : new String[] {"territory=1", "queen", "king=x"}) {
+            try {
+                new Evaluation(spec);
+                fail("accepted " + spec);
+            } catch (IllegalArgumentException excp) {
+                /* Expected. */
+            }
+        }
+    }
+}
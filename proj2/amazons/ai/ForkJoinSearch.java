@@ -0,0 +1,566 @@
+package amazons.ai;
+
+import amazons.Board;
+import amazons.Piece;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static amazons.ai.AI.INFINITY;
+import static amazons.ai.AI.WINNING_VALUE;
+
+/**
+ * A parallel alpha-beta search by the Young Brothers Wait rule, on a
+ * ForkJoinPool.  At each node with enough depth left, the first child
+ * (the eldest brother) is searched alone to establish a bound, and only
+ * then are its younger brothers searched in parallel, each as a
+ * RecursiveTask with its own Board.  The brothers share a Split, which
+ * narrows the window of those not yet started as results come in and
+ * records a cutoff as soon as one occurs.  Every node checks the Splits
+ * above it, so a cutoff cancels all the subtrees under it that are still
+ * being searched.
+ *
+ * <p>Each task generates moves into its own buffers, one per remaining
+ * depth, as Searcher does, taken from a per-thread MoveBuffers for as
+ * long as the task runs.  A thread waiting for brothers may run other
+ * tasks, but these finish before it resumes, so each thread's buffers
+ * are used as a stack.
+ */
+final class ForkJoinSearch {
+
+    /**
+     * Nodes with at most this much depth left are searched sequentially,
+     * since their subtrees are too small to be worth a task.
+     */
+    private static final int SEQUENTIAL_DEPTH = 1;
+    /**
+     * The number of nodes each thread visits between checks of the stop
+     * flag and clock, less 1.
+     */
+    private static final int CLOCK_CHECK_MASK = 0xff;
+
+    /**
+     * A search using THREADS threads that scores leaves with copies of
+     * EVALUATION, records results in TABLE, and abandons its search once
+     * STOP is set.
+     */
+    ForkJoinSearch(TranspositionTable table, AtomicBoolean stop,
+                   int threads, Evaluation evaluation) {
+        _table = table;
+        _stop = stop;
+        _pool = new ForkJoinPool(threads);
+        _evaluations = ThreadLocal.withInitial(() -> {
+            Evaluation copy = evaluation.copy();
+            copy.setStop(
+                () -> _stop.get()
+                      || _deadline != 0 && System.nanoTime() > _deadline);
+            return copy;
+        });
+    }
+
+    /**
+     * Return the number of threads I search with.
+     */
+    int threads() {
+        return _pool.getParallelism();
+    }
+
+    /**
+     * Stop my threads.
+     */
+    void shutdown() {
+        _pool.shutdown();
+    }
+
+    /**
+     * Search BOARD by iterative deepening, starting at depth FIRST and
+     * ending after depth LIMIT, the soft deadline SOFTDEADLINE (a
+     * System.nanoTime, or 0 for none) or when stopped.  Abandons a
+     * search in progress at HARDDEADLINE (likewise), except that the
+     * first depth is always completed if CONCLUDE.  BOARD is restored on
+     * return.
+     */
+    void run(Board board, int first, int limit, long softDeadline,
+             long hardDeadline, boolean conclude) {
+        _bestMove = 0;
+        _completedDepth = 0;
+        _nodes.reset();
+        _aborted = false;
+        _deadline = conclude ? 0 : hardDeadline;
+        _moveCapacity = Math.max(board.maxMoves(Piece.WHITE),
+                                 board.maxMoves(Piece.BLACK));
+        int sense = board.getTurn() == Piece.WHITE ? 1 : -1;
+        for (int depth = first; depth <= limit; depth += 1) {
+            int d = depth;
+            int value = _pool.invoke(new RecursiveTask<Integer>() {
+                @Override
+                protected Integer compute() {
+                    MoveBuffers buffers = _buffers.get();
+                    int[][] moves = buffers.acquire(d, _moveCapacity);
+                    try {
+                        return search(board, d, sense, -INFINITY, INFINITY,
+                                      null, true, moves);
+                    } finally {
+                        buffers.release();
+                    }
+                }
+            });
+            if (_aborted) {
+                break;
+            }
+            _bestMove = _lastFoundMove;
+            _completedDepth = depth;
+            if (Math.abs(value) == WINNING_VALUE
+                || softDeadline != 0 && System.nanoTime() > softDeadline) {
+                break;
+            }
+            _deadline = hardDeadline;
+        }
+    }
+
+    /**
+     * Return the best move (packed) found by the last completed depth of
+     * my last run, or 0 if none completed.
+     */
+    int bestMove() {
+        return _bestMove;
+    }
+
+    /**
+     * Return the last depth completed by my last run, or 0 if none.
+     */
+    int completedDepth() {
+        return _completedDepth;
+    }
+
+    /**
+     * Return the number of positions visited by my last run.
+     */
+    long nodes() {
+        return _nodes.sum();
+    }
+
+    /**
+     * Search BOARD to DEPTH and return its value, as for
+     * Searcher.findMove, recording the best move in _lastFoundMove iff
+     * ROOT.  SPLIT is the nearest enclosing Split, or null.  MOVES[D] is
+     * the move buffer for remaining depth D (1 <= D <= DEPTH).  Returns 0
+     * if the search is abandoned or SPLIT is cancelled, in which case
+     * the caller must check for either before using the value.  BOARD is
+     * restored on return.
+     */
+    private int search(Board board, int depth, int sense, int alpha,
+                       int beta, Split split, boolean root, int[][] moves) {
+        _nodes.increment();
+        if (cancelled(split)) {
+            return 0;
+        }
+        if (depth == 0 || board.winner() != Piece.EMPTY) {
+            return _evaluations.get().score(board);
+        }
+        if (!root) {
+            int solved = _evaluations.get().solve(board);
+            if (solved != Regions.UNDECIDED) {
+                return solved;
+            }
+        }
+        if (_aborted) {
+            return 0;
+        }
+        if (_buffers.get().poll()
+            && (_stop.get()
+                || _deadline != 0 && System.nanoTime() > _deadline)) {
+            _aborted = true;
+            return 0;
+        }
+        long key = board.key();
+        long entry = _table.probe(key);
+        if (entry != TranspositionTable.MISS && !root
+            && TranspositionTable.depth(entry) >= depth) {
+            int score = TranspositionTable.score(entry);
+            switch (TranspositionTable.bound(entry)) {
+                case TranspositionTable.EXACT:
+                    return score;
+                case TranspositionTable.LOWER:
+                    alpha = Math.max(alpha, score);
+                    break;
+                default:
+                    beta = Math.min(beta, score);
+                    break;
+            }
+            if (alpha >= beta) {
+                return score;
+            }
+        }
+        int alphaOrig = alpha, betaOrig = beta;
+        int[] buffer = moves[depth];
+        int count = board.generateMoves(board.getTurn(), buffer);
+        if (root) {
+            hashMoveFirst(buffer, count, _bestMove);
+        } else if (entry != TranspositionTable.MISS) {
+            hashMoveFirst(buffer, count, TranspositionTable.move(entry));
+        }
+
+        board.makeMove(buffer[0]);
+        int value = search(board, depth - 1, -sense, alpha, beta, split,
+                           false, moves);
+        board.undo();
+        if (cancelled(split)) {
+            return 0;
+        }
+        int bestMove = buffer[0];
+        if (sense == 1) {
+            alpha = Math.max(alpha, value);
+        } else {
+            beta = Math.min(beta, value);
+        }
+
+        if (alpha < beta && count > 1) {
+            if (depth <= SEQUENTIAL_DEPTH) {
+                for (int i = 1; i < count && alpha < beta; i++) {
+                    board.makeMove(buffer[i]);
+                    int v = search(board, depth - 1, -sense, alpha, beta,
+                                   split, false, moves);
+                    board.undo();
+                    if (cancelled(split)) {
+                        return 0;
+                    }
+                    if (sense * v > sense * value) {
+                        value = v;
+                        bestMove = buffer[i];
+                        if (sense == 1) {
+                            alpha = Math.max(alpha, value);
+                        } else {
+                            beta = Math.min(beta, value);
+                        }
+                    }
+                }
+            } else {
+                Split brothers =
+                    new Split(split, sense, alpha, beta, value, bestMove);
+                List<Brother> tasks = new ArrayList<>(count - 1);
+                for (int i = 1; i < count; i++) {
+                    tasks.add(new Brother(brothers, board, buffer[i],
+                                          depth - 1));
+                }
+                RecursiveTask.invokeAll(tasks);
+                if (cancelled(split)) {
+                    return 0;
+                }
+                value = brothers.value();
+                bestMove = brothers.bestMove();
+            }
+        }
+        if (root) {
+            _lastFoundMove = bestMove;
+        }
+        int bound;
+        if (value <= alphaOrig) {
+            bound = TranspositionTable.UPPER;
+        } else if (value >= betaOrig) {
+            bound = TranspositionTable.LOWER;
+        } else {
+            bound = TranspositionTable.EXACT;
+        }
+        _table.store(key, bestMove, value, depth, bound);
+        return value;
+    }
+
+    /**
+     * Return true iff the search is abandoned or SPLIT or a Split above it
+     * has been cut off.
+     */
+    private boolean cancelled(Split split) {
+        if (_aborted) {
+            return true;
+        }
+        for (Split s = split; s != null; s = s._parent) {
+            if (s._cut) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If packed move HASHMOVE is among the first COUNT MOVES, move it to
+     * the front.
+     */
+    private static void hashMoveFirst(int[] moves, int count, int hashMove) {
+        for (int i = 1; i < count; i++) {
+            if (moves[i] == hashMove) {
+                moves[i] = moves[0];
+                moves[0] = hashMove;
+                return;
+            }
+        }
+    }
+
+    /**
+     * The window and best result so far of a group of brothers being
+     * searched in parallel.
+     */
+    private static final class Split {
+
+        /**
+         * A Split under PARENT (or null) for brothers whose parent node
+         * maximizes if SENSE is 1 and minimizes if it is -1, with window
+         * ALPHA .. BETA, and where the eldest brother, BESTMOVE, had value
+         * VALUE.
+         */
+        Split(Split parent, int sense, int alpha, int beta, int value,
+              int bestMove) {
+            _parent = parent;
+            _sense = sense;
+            _alpha = alpha;
+            _beta = beta;
+            _value = value;
+            _bestMove = bestMove;
+        }
+
+        /**
+         * Return the current lower bound of the window.
+         */
+        synchronized int alpha() {
+            return _alpha;
+        }
+
+        /**
+         * Return the current upper bound of the window.
+         */
+        synchronized int beta() {
+            return _beta;
+        }
+
+        /**
+         * Return the best value found.
+         */
+        synchronized int value() {
+            return _value;
+        }
+
+        /**
+         * Return the move (packed) with value().
+         */
+        synchronized int bestMove() {
+            return _bestMove;
+        }
+
+        /**
+         * Record that packed MOVE has value VALUE, narrowing the window
+         * and cutting off the remaining brothers if the window closes.
+         */
+        synchronized void report(int move, int value) {
+            if (_sense * value > _sense * _value) {
+                _value = value;
+                _bestMove = move;
+                if (_sense == 1) {
+                    _alpha = Math.max(_alpha, value);
+                } else {
+                    _beta = Math.min(_beta, value);
+                }
+                if (_alpha >= _beta) {
+                    _cut = true;
+                }
+            }
+        }
+
+        /**
+         * The Split above me, or null.
+         */
+        private final Split _parent;
+        /**
+         * 1 if my brothers' parent maximizes, -1 if it minimizes.
+         */
+        private final int _sense;
+        /**
+         * The current window.
+         */
+        private int _alpha, _beta;
+        /**
+         * The best value found, and its move.
+         */
+        private int _value, _bestMove;
+        /**
+         * True once the window has closed.
+         */
+        private volatile boolean _cut;
+    }
+
+    /**
+     * The search of one younger brother.
+     */
+    @SuppressWarnings("serial")
+    private final class Brother extends RecursiveTask<Integer> {
+
+        /**
+         * The search to DEPTH of packed MOVE from PARENT, reporting to
+         * BROTHERS.
+         */
+        Brother(Split brothers, Board parent, int move, int depth) {
+            _brothers = brothers;
+            _parentBoard = parent;
+            _move = move;
+            _depth = depth;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (cancelled(_brothers)) {
+                return 0;
+            }
+            Board board = new Board(_parentBoard);
+            board.makeMove(_move);
+            MoveBuffers buffers = _buffers.get();
+            int[][] moves = buffers.acquire(_depth, _moveCapacity);
+            int value;
+            try {
+                value = search(board, _depth, -_brothers._sense,
+                               _brothers.alpha(), _brothers.beta(),
+                               _brothers, false, moves);
+            } finally {
+                buffers.release();
+            }
+            if (cancelled(_brothers)) {
+                return 0;
+            }
+            _brothers.report(_move, value);
+            return value;
+        }
+
+        /**
+         * The Split I report to.
+         */
+        private final Split _brothers;
+        /**
+         * The position before my move, which is not modified while I
+         * run.
+         */
+        private final Board _parentBoard;
+        /**
+         * My move (packed).
+         */
+        private final int _move;
+        /**
+         * The depth to search after my move.
+         */
+        private final int _depth;
+    }
+
+    /**
+     * The move buffers of the tasks running on one thread: a stack of
+     * sets, each indexed by remaining depth.  Also counts the thread's
+     * nodes between clock checks.
+     */
+    private static final class MoveBuffers {
+
+        /**
+         * Take the next set of buffers, with room for the moves of
+         * remaining depths 1 .. DEPTH, CAPACITY moves each.
+         */
+        int[][] acquire(int depth, int capacity) {
+            if (_used == _sets.length) {
+                _sets = Arrays.copyOf(_sets, _used + 1);
+                _sets[_used] = new int[0][];
+            }
+            int[][] set = _sets[_used];
+            if (set.length <= depth) {
+                set = _sets[_used] = Arrays.copyOf(set, depth + 1);
+            }
+            for (int d = 1; d <= depth; d += 1) {
+                if (set[d] == null || set[d].length < capacity) {
+                    set[d] = new int[capacity];
+                }
+            }
+            _used += 1;
+            return set;
+        }
+
+        /**
+         * Give back the set last taken.
+         */
+        void release() {
+            _used -= 1;
+        }
+
+        /**
+         * Return true iff it is time for this thread to check the stop
+         * flag and clock: once every CLOCK_CHECK_MASK + 1 calls.
+         */
+        boolean poll() {
+            _polls += 1;
+            return (_polls & CLOCK_CHECK_MASK) == 0;
+        }
+
+        /**
+         * The sets, of which the first _used are taken.
+         */
+        private int[][][] _sets = new int[0][][];
+        /**
+         * The number of sets taken.
+         */
+        private int _used;
+        /**
+         * The number of calls of poll.
+         */
+        private int _polls;
+    }
+
+    /**
+     * Each thread's move buffers.
+     */
+    private final ThreadLocal<MoveBuffers> _buffers =
+        ThreadLocal.withInitial(MoveBuffers::new);
+    /**
+     * The size of each move buffer in the current run: enough for the
+     * queens on its board.
+     */
+    private volatile int _moveCapacity = Board.MAX_MOVES;
+
+    /**
+     * Results of searches.
+     */
+    private final TranspositionTable _table;
+    /**
+     * Set to stop the search.
+     */
+    private final AtomicBoolean _stop;
+    /**
+     * Each thread's Evaluation.
+     */
+    private final ThreadLocal<Evaluation> _evaluations;
+    /**
+     * My threads.
+     */
+    private final ForkJoinPool _pool;
+    /**
+     * The move (packed) found by the current depth at the root.
+     */
+    private volatile int _lastFoundMove;
+    /**
+     * The best move (packed) of the last completed depth.
+     */
+    private int _bestMove;
+    /**
+     * The last completed depth.
+     */
+    private int _completedDepth;
+    /**
+     * The time (System.nanoTime) at which the current search must stop,
+     * or 0 if it has no deadline.
+     */
+    private volatile long _deadline;
+    /**
+     * True iff the current depth has been abandoned.
+     */
+    private volatile boolean _aborted;
+    /**
+     * Nodes visited in the current run.
+     */
+    private final LongAdder _nodes = new LongAdder();
+}
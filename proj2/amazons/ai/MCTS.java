@@ -0,0 +1,269 @@
+package amazons.ai;
+
+import amazons.Board;
+import amazons.Controller;
+import amazons.Move;
+import amazons.Piece;
+import amazons.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A Player that chooses moves by Monte Carlo Tree Search (see UctTree).
+ *
+ * <p>With more than one thread, the search uses root parallelism: each
+ * thread grows its own tree from the current position, with its own
+ * random playouts, and the trees' visit counts for each move at the root
+ * are summed at the end.  The move with the most visits is played.  The
+ * trees are kept from move to move: when my turn comes again, each tree
+ * is advanced past my last move and my opponent's reply, so the
+ * playouts already spent on that line are not lost.
+ *
+ * <p>The search runs for the Controller's time budget, or for
+ * DEFAULT_ITERATIONS iterations (in all) if there is none.  The system
+ * properties amazons.mcts.nodes and amazons.mcts.heavy set the largest
+ * tree per thread (default DEFAULT_MAX_NODES) and select heavy
+ * playouts.
+ */
+public class MCTS extends Player {
+
+    /**
+     * The number of iterations run per move without a time budget.
+     */
+    static final int DEFAULT_ITERATIONS = 20_000;
+    /**
+     * The default largest number of nodes in one thread's tree.
+     */
+    static final int DEFAULT_MAX_NODES = 1 << 23;
+
+    /**
+     * A new MCTS with no piece or controller (intended to produce
+     * a template).
+     */
+    public MCTS() {
+        this(null, null);
+    }
+
+    /**
+     * A new MCTS playing PIECE under control of CONTROLLER.
+     */
+    private MCTS(Piece piece, Controller controller) {
+        super(piece, controller);
+        _maxNodes = Integer.getInteger("amazons.mcts.nodes",
+                                       DEFAULT_MAX_NODES);
+        _heavy = Boolean.getBoolean("amazons.mcts.heavy");
+    }
+
+    @Override
+    public Player create(Piece piece, Controller controller) {
+        return new MCTS(piece, controller);
+    }
+
+    @Override
+    public String myMove() {
+        Move move = findMove(board(), _controller.timeBudget(),
+                             DEFAULT_ITERATIONS,
+                             _controller.searchThreads());
+        _controller.reportMove(move);
+        return move.toString();
+    }
+
+    /**
+     * Return a move for the side to move on BOARD, assuming there is one,
+     * searching with THREADS threads for BUDGET milliseconds, or for
+     * ITERATIONS iterations in all if BUDGET is 0.
+     */
+    Move findMove(Board board, long budget, int iterations, int threads) {
+        startTrees(threads);
+        reuse(board);
+        long deadline = budget > 0
+            ? System.nanoTime() + budget * 1_000_000L : 0;
+        int each = budget > 0 ? 0 : Math.max(1, iterations / threads);
+        List<Future<Integer>> running = new ArrayList<>();
+        for (int i = 1; i < threads; i += 1) {
+            UctTree tree = _trees[i];
+            Board copy = _boards[i];
+            copy.copy(board);
+            running.add(_helpers.submit(() ->
+                tree.search(copy, each, deadline)));
+        }
+        _lastPlayouts = _trees[0].search(board, each, deadline);
+        for (Future<Integer> helper : running) {
+            try {
+                _lastPlayouts += helper.get();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException excp) {
+                throw new IllegalStateException(excp.getCause());
+            }
+        }
+
+        UctTree main = _trees[0];
+        long[] visits = new long[main.rootChildren()];
+        _lastIterations = 0;
+        for (UctTree tree : _trees) {
+            _lastIterations += tree.rootVisits();
+            if (tree.rootChildren() != visits.length) {
+                continue;
+            }
+            for (int k = 0; k < visits.length; k += 1) {
+                visits[k] += tree.rootVisits(k);
+            }
+        }
+        int best = 0;
+        for (int k = 1; k < visits.length; k += 1) {
+            if (visits[k] > visits[best]) {
+                best = k;
+            }
+        }
+        int move = main.rootMove(best);
+        _rootKey = board.key();
+        _rootMoves = board.numMoves();
+        _chosen = move;
+        return Move.mv(move);
+    }
+
+    /**
+     * Return the number of visits to the roots of my trees after my last
+     * search: the iterations it ran plus those kept from earlier
+     * searches.
+     */
+    long lastIterations() {
+        return _lastIterations;
+    }
+
+    /**
+     * Return the number of iterations (playouts) my last search ran, in
+     * all threads.
+     */
+    long lastPlayouts() {
+        return _lastPlayouts;
+    }
+
+    /**
+     * Play out heavily (see UctTree) iff ON, clearing my trees.
+     * Initially, this is set by the system property amazons.mcts.heavy.
+     */
+    void setHeavy(boolean on) {
+        _heavy = on;
+        _trees = new UctTree[0];
+    }
+
+    @Override
+    public void dispose() {
+        if (_helpers != null) {
+            _helpers.shutdown();
+            _helpers = null;
+        }
+        _trees = new UctTree[0];
+    }
+
+    /**
+     * Prepare my trees to search BOARD: advance them past the two moves
+     * played since my last search if BOARD follows from it that way, and
+     * otherwise clear them.
+     */
+    private void reuse(Board board) {
+        boolean kept = false;
+        if (_chosen != 0 && board.numMoves() == _rootMoves + 2) {
+            List<Move> last = board.lastMoves(2);
+            Board before = new Board(board);
+            before.undo();
+            before.undo();
+            if (before.key() == _rootKey
+                && last.get(1).pack() == _chosen) {
+                int reply = last.get(0).pack();
+                kept = true;
+                for (UctTree tree : _trees) {
+                    kept &= tree.advance(_chosen) && tree.advance(reply);
+                }
+            }
+        }
+        if (!kept) {
+            for (UctTree tree : _trees) {
+                tree.clear();
+            }
+        }
+        _chosen = 0;
+    }
+
+    /**
+     * Make sure that I have THREADS trees, and a thread for each but the
+     * first.
+     */
+    private void startTrees(int threads) {
+        if (_trees.length == threads) {
+            return;
+        }
+        if (_helpers != null) {
+            _helpers.shutdown();
+            _helpers = null;
+        }
+        _trees = new UctTree[threads];
+        _boards = new Board[threads];
+        for (int i = 0; i < threads; i += 1) {
+            _trees[i] = new UctTree(_maxNodes, _heavy, SEED + i);
+            _boards[i] = new Board();
+        }
+        if (threads > 1) {
+            _helpers = Executors.newFixedThreadPool(threads - 1, r -> {
+                Thread t = new Thread(r, "amazons-mcts");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        _chosen = 0;
+    }
+
+    /**
+     * The seed of the first tree's random choices.
+     */
+    private static final long SEED = 0x61BL;
+
+    /**
+     * The largest number of nodes in one tree.
+     */
+    private final int _maxNodes;
+    /**
+     * True iff my playouts are heavy.
+     */
+    private boolean _heavy;
+    /**
+     * One tree per search thread.
+     */
+    private UctTree[] _trees = new UctTree[0];
+    /**
+     * The boards searched by _trees[1 ..].
+     */
+    private Board[] _boards = new Board[0];
+    /**
+     * Threads for _trees[1 ..], or null if there are none.
+     */
+    private ExecutorService _helpers;
+    /**
+     * The key of the position of my last search.
+     */
+    private long _rootKey;
+    /**
+     * The number of moves made before the position of my last search.
+     */
+    private int _rootMoves;
+    /**
+     * The move (packed) chosen by my last search, or 0 if my trees are
+     * not rooted at its position.
+     */
+    private int _chosen;
+    /**
+     * See lastIterations.
+     */
+    private long _lastIterations;
+    /**
+     * See lastPlayouts.
+     */
+    private long _lastPlayouts;
+}
@@ -0,0 +1,92 @@
+package amazons.ai;
+
+import amazons.Board;
+import amazons.Move;
+import amazons.Piece;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MCTSTest {
+
+    /**
+     * Black's only queen, on a10, can escape only through b9, which
+     * white can fill at once.
+     */
+    static final String TRAPPED =
+            "   B S - - - - - - - -\n" +
+            "   S - - W - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n";
+
+    @Test
+    public void findsWin() {
+        Board board = new Board(TRAPPED);
+        String before = board.toString();
+        for (int threads = 1; threads <= 2; threads += 1) {
+            MCTS mcts = new MCTS();
+            Move move = mcts.findMove(board, 0, 4000, threads);
+            assertEquals(before, board.toString());
+            assertTrue(board.isLegal(move));
+            board.makeMove(move);
+            assertEquals(Piece.WHITE, board.winner());
+            board.undo();
+        }
+    }
+
+    @Test
+    public void treeReuse() {
+        Board board = new Board(RegionsTest.SETTLED);
+        MCTS mcts = new MCTS();
+        Move move = mcts.findMove(board, 0, 2000, 1);
+        assertEquals(2000, mcts.lastIterations());
+        board.makeMove(move);
+        board.makeMove(Move.mv("j10-j9(j10)"));
+        mcts.findMove(board, 0, 2000, 1);
+        assertTrue(mcts.lastIterations() > 2000);
+
+        board.undo();
+        board.undo();
+        mcts.findMove(board, 0, 2000, 1);
+        assertEquals(2000, mcts.lastIterations());
+    }
+
+    @Test
+    public void advance() {
+        Board board = new Board();
+        UctTree tree = new UctTree(1 << 20, false, 1);
+        tree.search(board, 3000, 0);
+        assertEquals(3000, tree.rootVisits());
+        int best = 0;
+        for (int k = 1; k < tree.rootChildren(); k += 1) {
+            if (tree.rootVisits(k) > tree.rootVisits(best)) {
+                best = k;
+            }
+        }
+        int move = tree.rootMove(best), visits = tree.rootVisits(best);
+        assertTrue(tree.advance(move));
+        assertEquals(visits, tree.rootVisits());
+        board.makeMove(Move.mv(move));
+        tree.search(board, 1000, 0);
+        assertEquals(visits + 1000, tree.rootVisits());
+        for (int k = 0; k < tree.rootChildren(); k += 1) {
+            assertTrue(board.isLegal(Move.mv(tree.rootMove(k))));
+        }
+        assertTrue(tree.advance(tree.rootMove(0)) || tree.size() == 1);
+    }
+
+    @Test
+    public void manyQueens() {
+        Board board = new Board(AITest.MANY_QUEENS);
+        MCTS mcts = new MCTS();
+        Move move = mcts.findMove(board, 0, 200, 1);
+        assertTrue(board.isLegal(move));
+    }
+}
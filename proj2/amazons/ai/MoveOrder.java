@@ -0,0 +1,257 @@
+package amazons.ai;
+
+import amazons.Move;
+
+import java.util.Arrays;
+
+import static amazons.Board.SIZE;
+
+/**
+ * Move ordering for one thread's alpha-beta search.  Moves are tried in
+ * stages: the hash move (the best move stored in the transposition
+ * table), then the killer moves (the last two moves to cause a cutoff at
+ * the same ply), and then the rest, by decreasing history score.  The
+ * history score of a move is the sum of two tables, one indexed by the
+ * queen's move (from and to squares) and one by the arrow's (to and
+ * spear squares), so that a good queen move or a good arrow helps order
+ * every move that shares it.  Both are credited with DEPTH * DEPTH each
+ * time a move causes a cutoff at depth DEPTH.
+ *
+ * <p>Also counts cutoffs, and cutoffs by the first move tried, as a
+ * measure of how well the ordering works: with perfect ordering every
+ * cutoff would come from the first move.
+ */
+final class MoveOrder {
+
+    /**
+     * The number of squares.
+     */
+    private static final int SQUARES = SIZE * SIZE;
+    /**
+     * Killer moves kept per ply.
+     */
+    private static final int KILLERS = 2;
+    /**
+     * History scores are halved when one exceeds this, which keeps them
+     * small enough for the sort keys in sortByHistory.
+     */
+    private static final int HISTORY_LIMIT = 1 << 24;
+
+    /**
+     * Order MOVES[0 .. COUNT-1] (packed) for a node at PLY from the root,
+     * whose hash move is HASHMOVE (or 0).
+     */
+    void order(int[] moves, int count, int hashMove, int ply) {
+        int start = promote(moves, 0, count, hashMove);
+        if (ply < _killers.length) {
+            for (int k = 0; k < KILLERS; k += 1) {
+                int killer = _killers[ply][k];
+                if (killer != hashMove) {
+                    start = promote(moves, start, count, killer);
+                }
+            }
+        }
+        if (count - start > 1) {
+            sortByHistory(moves, start, count, true, true);
+        }
+    }
+
+    /**
+     * Order the queen moves QUEENMOVES[0 .. COUNT-1] (packed with spear
+     * 0) for a node at PLY from the root, whose hash move is HASHMOVE (a
+     * full move, or 0): the queen moves of the hash move and the killers
+     * first, and then by queen history alone.
+     */
+    void orderQueenMoves(int[] queenMoves, int count, int hashMove, int ply) {
+        int start = promote(queenMoves, 0, count, queenMove(hashMove));
+        if (ply < _killers.length) {
+            for (int k = 0; k < KILLERS; k += 1) {
+                start = promote(queenMoves, start, count,
+                                queenMove(_killers[ply][k]));
+            }
+        }
+        if (count - start > 1) {
+            sortByHistory(queenMoves, start, count, true, false);
+        }
+    }
+
+    /**
+     * Order MOVES[0 .. COUNT-1], which share a queen move, for a node at
+     * PLY from the root: HASHMOVE (or 0) and the killers first, and then
+     * by arrow history alone.
+     */
+    void orderArrows(int[] moves, int count, int hashMove, int ply) {
+        int start = promote(moves, 0, count, hashMove);
+        if (ply < _killers.length) {
+            for (int k = 0; k < KILLERS; k += 1) {
+                int killer = _killers[ply][k];
+                if (killer != hashMove) {
+                    start = promote(moves, start, count, killer);
+                }
+            }
+        }
+        if (count - start > 1) {
+            sortByHistory(moves, start, count, false, true);
+        }
+    }
+
+    /**
+     * Record that packed MOVE, the INDEXth tried, caused a cutoff at PLY
+     * from the root with DEPTH plies left.
+     */
+    void cutoff(int move, int index, int ply, int depth) {
+        _cutoffs += 1;
+        if (index == 0) {
+            _firstMoveCutoffs += 1;
+        }
+        if (ply >= _killers.length) {
+            _killers = Arrays.copyOf(_killers, ply + 1);
+            for (int p = 0; p <= ply; p += 1) {
+                if (_killers[p] == null) {
+                    _killers[p] = new int[KILLERS];
+                }
+            }
+        }
+        int[] killers = _killers[ply];
+        if (killers[0] != move) {
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+        int bonus = depth * depth;
+        int from = Move.fromIndex(move), to = Move.toIndex(move),
+            spear = Move.spearIndex(move);
+        _queenHistory[from * SQUARES + to] += bonus;
+        _arrowHistory[to * SQUARES + spear] += bonus;
+        if (_queenHistory[from * SQUARES + to] > HISTORY_LIMIT
+            || _arrowHistory[to * SQUARES + spear] > HISTORY_LIMIT) {
+            ageHistory();
+        }
+    }
+
+    /**
+     * Prepare for a new search: forget the killers, which belong to the
+     * previous position, and halve the history scores, so that recent
+     * experience counts for more.
+     */
+    void newSearch() {
+        for (int[] killers : _killers) {
+            Arrays.fill(killers, 0);
+        }
+        ageHistory();
+    }
+
+    /**
+     * Halve all history scores.
+     */
+    private void ageHistory() {
+        for (int i = 0; i < SQUARES * SQUARES; i += 1) {
+            _queenHistory[i] >>= 1;
+            _arrowHistory[i] >>= 1;
+        }
+    }
+
+    /**
+     * Return the number of cutoffs recorded.
+     */
+    long cutoffs() {
+        return _cutoffs;
+    }
+
+    /**
+     * Return the number of cutoffs recorded that were caused by the first
+     * move tried.
+     */
+    long firstMoveCutoffs() {
+        return _firstMoveCutoffs;
+    }
+
+    /**
+     * Reset the cutoff counts.
+     */
+    void resetCounts() {
+        _cutoffs = _firstMoveCutoffs = 0;
+    }
+
+    /**
+     * Return packed MOVE with its spear index replaced by 0, or 0 if MOVE
+     * is 0.
+     */
+    private static int queenMove(int move) {
+        return move == 0 ? 0
+            : Move.pack(Move.fromIndex(move), Move.toIndex(move), 0);
+    }
+
+    /**
+     * If packed MOVE is among MOVES[START .. COUNT-1], swap it into
+     * MOVES[START] and return START + 1; otherwise return START.
+     */
+    private static int promote(int[] moves, int start, int count, int move) {
+        if (move == 0) {
+            return start;
+        }
+        for (int i = start; i < count; i += 1) {
+            if (moves[i] == move) {
+                moves[i] = moves[start];
+                moves[start] = move;
+                return start + 1;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Sort MOVES[START .. COUNT-1] by decreasing history score, keeping
+     * the generated order among moves with equal scores.  The score
+     * includes the queen history iff QUEEN and the arrow history iff
+     * ARROW.
+     */
+    private void sortByHistory(int[] moves, int start, int count,
+                               boolean queen, boolean arrow) {
+        if (_keys.length < count) {
+            _keys = new long[moves.length];
+        }
+        long[] keys = _keys;
+        boolean scored = false;
+        for (int i = start; i < count; i += 1) {
+            int move = moves[i];
+            int to = Move.toIndex(move);
+            long score = 0;
+            if (queen) {
+                score += _queenHistory[Move.fromIndex(move) * SQUARES + to];
+            }
+            if (arrow) {
+                score += _arrowHistory[to * SQUARES + Move.spearIndex(move)];
+            }
+            scored |= score != 0;
+            keys[i] = -score << 34 | (long) (i - start) << 21 | move;
+        }
+        if (!scored) {
+            return;
+        }
+        Arrays.sort(keys, start, count);
+        for (int i = start; i < count; i += 1) {
+            moves[i] = (int) keys[i] & 0x1fffff;
+        }
+    }
+
+    /**
+     * Killer moves (packed) by ply, most recent first.
+     */
+    private int[][] _killers = new int[0][];
+    /**
+     * History scores by from * SQUARES + to.
+     */
+    private final int[] _queenHistory = new int[SQUARES * SQUARES];
+    /**
+     * History scores by to * SQUARES + spear.
+     */
+    private final int[] _arrowHistory = new int[SQUARES * SQUARES];
+    /**
+     * Scratch space for sorting.
+     */
+    private long[] _keys = new long[0];
+    /**
+     * Cutoffs counted, and cutoffs by the first move tried.
+     */
+    private long _cutoffs, _firstMoveCutoffs;
+}
@@ -0,0 +1,316 @@
+package amazons.ai;
+
+import amazons.Bitboard;
+import amazons.Board;
+import amazons.Piece;
+import amazons.Square;
+
+import java.util.function.BooleanSupplier;
+
+import static amazons.ai.AI.WINNING_VALUE;
+
+/**
+ * The decomposition of an Amazons position into regions, and exact
+ * scoring of the regions that are no longer contested.
+ *
+ * <p>A region is a set of unspeared squares connected by king steps.
+ * Since neither queens nor spears ever cross a spear, play in one region
+ * never affects another, and the game is a sum of independent subgames,
+ * one per region.  A region holding queens of only one color is settled:
+ * its owner can make exactly as many moves there as the longest sequence
+ * of moves its queens can play in it, and the other side none.  That
+ * number is found by an exhaustive search, memoized by the region's
+ * squares and queens, for regions with at most EXACT_LIMIT empty squares
+ * and for at most NODE_BUDGET positions per analysis (the search is
+ * exponential in the number of queens).
+ * Once every region with queens is settled, the position is decided: the
+ * side to move wins iff it has more moves left than its opponent (with
+ * equal counts, it runs out first).
+ *
+ * <p>A Regions keeps scratch state and a memo, and is not thread-safe.
+ */
+final class Regions {
+
+    /**
+     * The largest number of empty squares in a settled region whose
+     * longest sequence of moves is found exactly.  For larger regions,
+     * the number of empty squares, which is an upper bound, is used.
+     */
+    static final int EXACT_LIMIT = 14;
+    /**
+     * The most positions expanded (not found in the memo) by one
+     * analyze.  Once it is exceeded, the remaining regions get the
+     * upper bound, as for large ones.
+     */
+    static final int NODE_BUDGET = 1 << 16;
+    /**
+     * The number of positions expanded between polls of the stop
+     * condition, less 1.
+     */
+    private static final int STOP_CHECK_MASK = 0x3ff;
+    /**
+     * Log2 of the number of memo entries.
+     */
+    private static final int MEMO_LOG_SIZE = 16;
+    /**
+     * The result of solve for an undecided position.
+     */
+    static final int UNDECIDED = Integer.MIN_VALUE;
+
+    /**
+     * Have analyze give up exact search, as if over budget, once STOP
+     * returns true.
+     */
+    void setStop(BooleanSupplier stop) {
+        _stop = stop;
+    }
+
+    /**
+     * Analyze BOARD: find its regions and the moves left to each side in
+     * the settled ones.
+     */
+    void analyze(Board board) {
+        long freeLo = ~board.spearsLo(), freeHi = ~board.spearsHi()
+            & Bitboard.ALL_HI;
+        long whiteLo = board.queensLo(Piece.WHITE),
+            whiteHi = board.queensHi(Piece.WHITE),
+            blackLo = board.queensLo(Piece.BLACK),
+            blackHi = board.queensHi(Piece.BLACK);
+        long queensLo = whiteLo | blackLo, queensHi = whiteHi | blackHi;
+        _regions = 0;
+        _whiteMoves = _blackMoves = 0;
+        _contested = false;
+        _exact = true;
+        _nodes = 0;
+        _abandoned = false;
+        while ((queensLo | queensHi) != 0) {
+            int seed = Bitboard.first(queensLo, queensHi);
+            long lo = Bitboard.bitLo(seed), hi = Bitboard.bitHi(seed);
+            while (true) {
+                long nextLo = (lo | Bitboard.neighborsLo(lo, hi)) & freeLo;
+                long nextHi = (hi | Bitboard.neighborsHi(lo, hi)) & freeHi;
+                if (nextLo == lo && nextHi == hi) {
+                    break;
+                }
+                lo = nextLo;
+                hi = nextHi;
+            }
+            queensLo &= ~lo;
+            queensHi &= ~hi;
+            _regions += 1;
+            boolean white = ((whiteLo & lo) | (whiteHi & hi)) != 0,
+                black = ((blackLo & lo) | (blackHi & hi)) != 0;
+            if (white && black) {
+                _contested = true;
+                continue;
+            }
+            long ownLo = white ? whiteLo & lo : blackLo & lo,
+                ownHi = white ? whiteHi & hi : blackHi & hi;
+            int moves = longest(lo, hi, ownLo, ownHi);
+            if (white) {
+                _whiteMoves += moves;
+            } else {
+                _blackMoves += moves;
+            }
+        }
+    }
+
+    /**
+     * Return the number of regions containing queens found by the last
+     * analyze.
+     */
+    int regions() {
+        return _regions;
+    }
+
+    /**
+     * Return true iff the last analyze found a region with queens of
+     * both colors.
+     */
+    boolean contested() {
+        return _contested;
+    }
+
+    /**
+     * Return the number of moves left to SIDE in the settled regions
+     * found by the last analyze (an upper bound if not exact()).
+     */
+    int moves(Piece side) {
+        return side == Piece.WHITE ? _whiteMoves : _blackMoves;
+    }
+
+    /**
+     * Return true iff the counts of moves(...) are exact.
+     */
+    boolean exact() {
+        return _exact;
+    }
+
+    /**
+     * Return WINNING_VALUE or -WINNING_VALUE if BOARD is decided for
+     * white or black (see above), and otherwise UNDECIDED.
+     */
+    int solve(Board board) {
+        analyze(board);
+        if (_contested || !_exact) {
+            return UNDECIDED;
+        }
+        Piece turn = board.getTurn();
+        boolean toMoveWins = moves(turn) > moves(turn.opponent());
+        return (turn == Piece.WHITE) == toMoveWins
+            ? WINNING_VALUE : -WINNING_VALUE;
+    }
+
+    /**
+     * Return the most moves that the queens (QUEENSLO, QUEENSHI), all of
+     * one color, can make in succession in the region (LO, HI) of
+     * unspeared squares containing them, or an upper bound on it (and
+     * clear _exact) if the region is too large to search or the search
+     * is abandoned.
+     */
+    private int longest(long lo, long hi, long queensLo, long queensHi) {
+        int empty = Bitboard.count(lo, hi) - Bitboard.count(queensLo, queensHi);
+        if (empty > EXACT_LIMIT) {
+            _exact = false;
+            return empty;
+        }
+        int moves = solve(lo & ~queensLo, hi & ~queensHi, queensLo, queensHi,
+                          empty);
+        if (_abandoned) {
+            _exact = false;
+            return empty;
+        }
+        return moves;
+    }
+
+    /**
+     * Return the most moves that the queens (QUEENSLO, QUEENSHI) can make
+     * in succession using only the EMPTY empty squares (EMPTYLO,
+     * EMPTYHI).  Each move fills one empty square, so the result is at
+     * most EMPTY.  Sets _abandoned and returns a meaningless value once
+     * over NODE_BUDGET or stopped.
+     */
+    private int solve(long emptyLo, long emptyHi, long queensLo,
+                      long queensHi, int empty) {
+        if (empty == 0) {
+            return 0;
+        }
+        int slot = memoSlot(emptyLo, emptyHi, queensLo, queensHi);
+        if (_memoValue[slot] != 0 && _memoEmptyLo[slot] == emptyLo
+            && _memoEmptyHi[slot] == emptyHi
+            && _memoQueensLo[slot] == queensLo
+            && _memoQueensHi[slot] == queensHi) {
+            return _memoValue[slot] - 1;
+        }
+        _nodes += 1;
+        if (_nodes > NODE_BUDGET
+            || (_nodes & STOP_CHECK_MASK) == 0 && _stop.getAsBoolean()) {
+            _abandoned = true;
+            return 0;
+        }
+        int best = 0;
+        long qLo = queensLo, qHi = queensHi;
+    search:
+        while ((qLo | qHi) != 0) {
+            int from = Bitboard.first(qLo, qHi);
+            if (from < 64) {
+                qLo &= qLo - 1;
+            } else {
+                qHi &= qHi - 1;
+            }
+            long fromLo = Bitboard.bitLo(from), fromHi = Bitboard.bitHi(from);
+            for (int dir = 0; dir < 8; dir += 1) {
+                for (int to : Square.ray(from, dir)) {
+                    if (!Bitboard.contains(emptyLo, emptyHi, to)) {
+                        break;
+                    }
+                    long toLo = Bitboard.bitLo(to), toHi = Bitboard.bitHi(to);
+                    long afterLo = (emptyLo | fromLo) & ~toLo,
+                        afterHi = (emptyHi | fromHi) & ~toHi;
+                    long movedLo = queensLo & ~fromLo | toLo,
+                        movedHi = queensHi & ~fromHi | toHi;
+                    for (int sdir = 0; sdir < 8; sdir += 1) {
+                        for (int spear : Square.ray(to, sdir)) {
+                            if (!Bitboard.contains(afterLo, afterHi, spear)) {
+                                break;
+                            }
+                            int value = 1 + solve(
+                                afterLo & ~Bitboard.bitLo(spear),
+                                afterHi & ~Bitboard.bitHi(spear),
+                                movedLo, movedHi, empty - 1);
+                            if (_abandoned) {
+                                return 0;
+                            }
+                            if (value > best) {
+                                best = value;
+                                if (best == empty) {
+                                    break search;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        _memoEmptyLo[slot] = emptyLo;
+        _memoEmptyHi[slot] = emptyHi;
+        _memoQueensLo[slot] = queensLo;
+        _memoQueensHi[slot] = queensHi;
+        _memoValue[slot] = best + 1;
+        return best;
+    }
+
+    /**
+     * Return the memo slot for the position with empty squares (EMPTYLO,
+     * EMPTYHI) and queens (QUEENSLO, QUEENSHI).
+     */
+    private static int memoSlot(long emptyLo, long emptyHi, long queensLo,
+                                long queensHi) {
+        long h = emptyLo * 0x9E3779B97F4A7C15L;
+        h = (h ^ emptyHi) * 0xC2B2AE3D27D4EB4FL;
+        h = (h ^ queensLo) * 0x165667B19E3779F9L;
+        h = (h ^ queensHi) * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> (64 - MEMO_LOG_SIZE));
+    }
+
+    /**
+     * Number of regions with queens.
+     */
+    private int _regions;
+    /**
+     * Moves left to each side in settled regions.
+     */
+    private int _whiteMoves, _blackMoves;
+    /**
+     * True iff some region has queens of both colors.
+     */
+    private boolean _contested;
+    /**
+     * True iff _whiteMoves and _blackMoves are exact.
+     */
+    private boolean _exact;
+    /**
+     * Positions expanded by the current analyze.
+     */
+    private int _nodes;
+    /**
+     * True iff the current analyze has given up exact search.
+     */
+    private boolean _abandoned;
+    /**
+     * The stop condition polled while searching.
+     */
+    private BooleanSupplier _stop = () -> false;
+    /**
+     * Memo of solve: the arguments and 1 + the result for each slot
+     * (0 for an empty slot).  A new entry replaces the old one.
+     */
+    private final long[] _memoEmptyLo = new long[1 << MEMO_LOG_SIZE],
+        _memoEmptyHi = new long[1 << MEMO_LOG_SIZE],
+        _memoQueensLo = new long[1 << MEMO_LOG_SIZE],
+        _memoQueensHi = new long[1 << MEMO_LOG_SIZE];
+    /**
+     * See _memoEmptyLo.
+     */
+    private final int[] _memoValue = new int[1 << MEMO_LOG_SIZE];
+}
@@ -0,0 +1,117 @@
+package amazons.ai;
+
+import amazons.Board;
+import amazons.Piece;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RegionsTest {
+
+    /**
+     * White walled into a1-b3 (5 empty squares), black into j9-j10
+     * (1 empty square), and the rest of the board free of queens.
+     */
+    static final String SETTLED =
+            "   - - - - - - - - S B\n" +
+            "   - - - - - - - - S -\n" +
+            "   - - - - - - - - S S\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   S S S - - - - - - -\n" +
+            "   - - S - - - - - - -\n" +
+            "   - - S - - - - - - -\n" +
+            "   W - S - - - - - - -\n";
+
+    @Test
+    public void settledRegions() {
+        Board board = new Board(SETTLED);
+        Regions regions = new Regions();
+        regions.analyze(board);
+        assertEquals(2, regions.regions());
+        assertFalse(regions.contested());
+        assertTrue(regions.exact());
+        assertEquals(5, regions.moves(Piece.WHITE));
+        assertEquals(1, regions.moves(Piece.BLACK));
+        assertEquals(AI.WINNING_VALUE, regions.solve(board));
+    }
+
+    @Test
+    public void longestSequence() {
+        String content =
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   S S S S S - - - - -\n" +
+            "   S - - - S - - - - -\n" +
+            "   S S S S S - - - B -\n" +
+            "   - - W - S - - - - -\n";
+        Board board = new Board(content);
+        Regions regions = new Regions();
+        regions.analyze(board);
+        assertEquals(2, regions.regions());
+        assertFalse(regions.contested());
+        assertEquals(3, regions.moves(Piece.WHITE));
+        assertFalse(regions.exact());
+        assertEquals(Regions.UNDECIDED, regions.solve(board));
+    }
+
+    /**
+     * White's three queens in a 13-square region whose exhaustive search
+     * takes tens of seconds.
+     */
+    static final String CROWDED =
+            "   S S S S S S S S - B\n" +
+            "   S S S S S S S S S -\n" +
+            "   S S S S S S S S S S\n" +
+            "   S S S S S S S S S S\n" +
+            "   S S S S S S S S S S\n" +
+            "   S W S S S S S S S S\n" +
+            "   - - - S S - S S S S\n" +
+            "   S W S - - S S S S S\n" +
+            "   - - - - - S S S S S\n" +
+            "   - - W S S S S S S S\n";
+
+    @Test
+    public void budget() {
+        Board board = new Board(CROWDED);
+        Regions regions = new Regions();
+        long start = System.nanoTime();
+        regions.analyze(board);
+        assertTrue("exact search not bounded",
+                   System.nanoTime() - start < 2_000_000_000L);
+        assertFalse(regions.contested());
+        assertEquals(13, regions.moves(Piece.WHITE));
+        regions = new Regions();
+        regions.setStop(() -> true);
+        regions.analyze(board);
+        assertFalse(regions.exact());
+        assertEquals(Regions.UNDECIDED, regions.solve(board));
+    }
+
+    @Test
+    public void contested() {
+        Board board = new Board();
+        Regions regions = new Regions();
+        regions.analyze(board);
+        assertEquals(1, regions.regions());
+        assertTrue(regions.contested());
+        assertEquals(Regions.UNDECIDED, regions.solve(board));
+    }
+
+    @Test
+    public void endgameSearch() {
+        Board board = new Board(SETTLED);
+        Evaluation eval = new Evaluation("regions=1");
+        assertEquals(AI.WINNING_VALUE, eval.score(board));
+        AI ai = new AI(AI.Engine.LAZY_SMP, eval);
+        assertTrue(board.isLegal(ai.findMove(board, 10, 60_000, 1)));
+        assertEquals(1, ai.completedDepth());
+    }
+}
@@ -0,0 +1,98 @@
+package amazons.ai;
+
+import amazons.Board;
+import amazons.Move;
+
+import java.util.Random;
+
+/**
+ * Measures the AI's search: split-ply against whole-move search, and the
+ * speedup of the parallel search engines with the number of threads.  Usage:
+ *
+ * <pre>
+ *     java amazons.ai.SearchBenchmark [DEPTH [MAXTHREADS [PLIES]]]
+ * </pre>
+ *
+ * <p>plays PLIES (default 12) random moves from the initial position,
+ * and then times a fixed-depth search to DEPTH (default 3) from the
+ * result, each with a fresh AI: first on one thread, searching whole
+ * moves and then in split-ply mode, printing the time, node count and
+ * nodes per second of each; and then with 1, 2, 4, ... up to MAXTHREADS
+ * threads (default: the number of available processors) for each
+ * engine.
+ * Prints the time, node count, speedup over one thread, and the
+ * fraction of cutoffs caused by the first move tried for each.
+ */
+final class SearchBenchmark {
+
+    /**
+     * Not instantiable.
+     */
+    private SearchBenchmark() {
+    }
+
+    /**
+     * Run the benchmark as described above, taking DEPTH, MAXTHREADS,
+     * and PLIES from ARGS.
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1])
+            : Runtime.getRuntime().availableProcessors();
+        int plies = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+
+        Board board = position(plies, new Random(61));
+        System.out.printf("%d moves played, search to depth %d%n",
+                          board.numMoves(), depth);
+        System.out.printf("%-20s %10s %12s %12s%n",
+                          "mode", "ms", "nodes", "nodes/s");
+        for (boolean split : new boolean[] {false, true}) {
+            AI ai = new AI();
+            ai.setSplitPly(split);
+            long start = System.nanoTime();
+            Move move = ai.findMove(board, depth, 0, 1);
+            double millis = (System.nanoTime() - start) / 1e6;
+            System.out.printf("%-20s %10.1f %12d %12.0f  %s%n",
+                              split ? "split-ply" : "whole moves", millis,
+                              ai.lastNodes(), ai.lastNodes() * 1e3 / millis,
+                              move);
+        }
+        System.out.println();
+
+        System.out.printf("%-20s %8s %10s %12s %8s %8s%n", "engine",
+                          "threads", "ms", "nodes", "speedup", "first");
+        for (AI.Engine engine : AI.Engine.values()) {
+            double base = 0;
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                AI ai = new AI(engine);
+                long start = System.nanoTime();
+                Move move = ai.findMove(board, depth, 0, threads);
+                double millis = (System.nanoTime() - start) / 1e6;
+                if (threads == 1) {
+                    base = millis;
+                }
+                System.out.printf("%-20s %8d %10.1f %12d %8.2f %8.3f  %s%n",
+                                  engine, threads, millis, ai.lastNodes(),
+                                  base / millis, ai.firstMoveCutoffRate(),
+                                  move);
+            }
+        }
+    }
+
+    /**
+     * Return the position after PLIES random moves (or fewer, if the game
+     * ends) from the initial position, chosen using RANDOM.
+     */
+    static Board position(int plies, Random random) {
+        Board board = new Board();
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int i = 0; i < plies; i += 1) {
+            int count = board.generateMoves(board.getTurn(), moves);
+            if (count == 0) {
+                break;
+            }
+            board.makeMove(moves[random.nextInt(count)]);
+        }
+        return board;
+    }
+}
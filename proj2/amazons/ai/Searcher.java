@@ -0,0 +1,488 @@
+package amazons.ai;
+
+import amazons.Board;
+import amazons.Move;
+import amazons.Piece;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static amazons.ai.AI.INFINITY;
+import static amazons.ai.AI.WINNING_VALUE;
+
+/**
+ * One thread's alpha-beta search for an AI.  Each Searcher owns its move
+ * buffers and search state, so that several may search copies of the same
+ * position at once, sharing only a TranspositionTable and a stop flag.
+ */
+final class Searcher {
+
+    /**
+     * The number of nodes between checks of the clock, less 1.
+     */
+    private static final int CLOCK_CHECK_MASK = 0xff;
+
+    /**
+     * A Searcher that scores leaves with EVALUATION (which it does not
+     * share), records results in TABLE, and abandons its search once STOP
+     * is set.
+     */
+    Searcher(TranspositionTable table, AtomicBoolean stop,
+             Evaluation evaluation) {
+        _table = table;
+        _stop = stop;
+        _evaluation = evaluation;
+        _evaluation.setStop(
+            () -> _stop.get()
+                  || _deadline != 0 && System.nanoTime() > _deadline);
+    }
+
+    /**
+     * Search BOARD by iterative deepening, starting at depth FIRST and
+     * ending after depth LIMIT, the soft deadline SOFTDEADLINE (a
+     * System.nanoTime, or 0 for none) or when stopped.  Abandons a
+     * search in progress at HARDDEADLINE (likewise), except that the
+     * first depth is always completed if CONCLUDE.  At the root, searches
+     * the best move of the previous depth first and then the other moves
+     * in generated order, rotated by ROTATION places.  BOARD is restored
+     * on return.
+     */
+    void run(Board board, int first, int limit, long softDeadline,
+             long hardDeadline, boolean conclude, int rotation) {
+        _board = board;
+        _rotation = rotation;
+        _bestMove = 0;
+        _bestValue = 0;
+        _completedDepth = 0;
+        _nodes = 0;
+        _aborted = false;
+        _deadline = conclude ? 0 : hardDeadline;
+        _order.newSearch();
+        _order.resetCounts();
+        int sense = board.getTurn() == Piece.WHITE ? 1 : -1;
+        int queenMoves = Math.max(board.maxQueenMoves(Piece.WHITE),
+                                  board.maxQueenMoves(Piece.BLACK));
+        if (queenMoves > _queenMoves) {
+            _queenMoves = queenMoves;
+            _moveBuffers = new int[0][];
+            _queenBuffers = new int[0][];
+        }
+        for (int depth = first; depth <= limit; depth += 1) {
+            while (_moveBuffers.length <= depth) {
+                int n = _moveBuffers.length;
+                _moveBuffers = Arrays.copyOf(_moveBuffers, n + 1);
+                _moveBuffers[n] = new int[_queenMoves * Board.MAX_REACH];
+                _queenBuffers = Arrays.copyOf(_queenBuffers, n + 1);
+                _queenBuffers[n] = new int[_queenMoves];
+            }
+            _rootDepth = depth;
+            int value = findMove(depth, true, sense, -INFINITY, INFINITY);
+            if (_aborted) {
+                break;
+            }
+            _bestMove = _lastFoundMove;
+            _bestValue = value;
+            _completedDepth = depth;
+            if (Math.abs(value) == WINNING_VALUE
+                || softDeadline != 0 && System.nanoTime() > softDeadline) {
+                break;
+            }
+            _deadline = hardDeadline;
+        }
+        _board = null;
+    }
+
+    /**
+     * Return the best move (packed) found by the last completed depth of
+     * my last run, or 0 if none completed.
+     */
+    int bestMove() {
+        return _bestMove;
+    }
+
+    /**
+     * Return the value of bestMove().
+     */
+    int bestValue() {
+        return _bestValue;
+    }
+
+    /**
+     * Return the last depth completed by my last run, or 0 if none.
+     */
+    int completedDepth() {
+        return _completedDepth;
+    }
+
+    /**
+     * Return the number of positions visited by my last run.
+     */
+    long nodes() {
+        return _nodes;
+    }
+
+    /**
+     * Search the queen move and the arrow of each move as separate
+     * levels iff ON (see findMoveByHalves).
+     */
+    void setSplitPly(boolean on) {
+        _splitPly = on;
+    }
+
+    /**
+     * Return my move ordering, whose cutoff counts cover my last run.
+     */
+    MoveOrder order() {
+        return _order;
+    }
+
+    /**
+     * Find a move from the current position and return its value,
+     * recording the move found in _lastFoundMove iff SAVEMOVE. The move
+     * should have maximal value or have value > BETA if SENSE==1,
+     * and minimal value or value < ALPHA if SENSE==-1. Searches up to
+     * DEPTH levels.  Searching at level 0 simply returns _evaluation's
+     * estimate of the board value and does not set _lastMoveFound.  Once the
+     * search passes its deadline or is stopped, sets _aborted and
+     * returns 0.
+     */
+    private int findMove(int depth, boolean saveMove, int sense,
+                         int alpha, int beta) {
+        Board board = _board;
+        if ((++_nodes & CLOCK_CHECK_MASK) == 0
+            && (_stop.get()
+                || _deadline != 0 && System.nanoTime() > _deadline)) {
+            _aborted = true;
+        }
+        if (_aborted) {
+            return 0;
+        }
+        if (depth == 0 || board.winner() == Piece.WHITE || board.winner() == Piece.BLACK) {
+            return _evaluation.score(board);
+        }
+        if (!saveMove) {
+            int solved = _evaluation.solve(board);
+            if (solved != Regions.UNDECIDED) {
+                return solved;
+            }
+        }
+        long key = board.key();
+        long entry = _table.probe(key);
+        if (entry != TranspositionTable.MISS && !saveMove
+            && TranspositionTable.depth(entry) >= depth) {
+            int score = TranspositionTable.score(entry);
+            switch (TranspositionTable.bound(entry)) {
+                case TranspositionTable.EXACT:
+                    return score;
+                case TranspositionTable.LOWER:
+                    alpha = Math.max(alpha, score);
+                    break;
+                default:
+                    beta = Math.min(beta, score);
+                    break;
+            }
+            if (alpha >= beta) {
+                return score;
+            }
+        }
+        if (_splitPly) {
+            return findMoveByHalves(key, entry, depth, saveMove, sense,
+                                    alpha, beta);
+        }
+        int alphaOrig = alpha, betaOrig = beta;
+        int[] moves = _moveBuffers[depth];
+        int count = board.generateMoves(board.getTurn(), moves);
+        if (saveMove) {
+            rotate(moves, count, _rotation);
+            hashMoveFirst(moves, count, _bestMove);
+        } else {
+            _order.order(moves, count, entry == TranspositionTable.MISS ? 0
+                         : TranspositionTable.move(entry), _rootDepth - depth);
+        }
+        int bestMove = 0;
+        if (sense == 1) {
+            // MAX NODE
+            int value = -INFINITY;
+            for (int i = 0; i < count; i++) {
+                board.makeMove(moves[i]);
+                int currentMoveValue = findMove(depth - 1, false, -sense, alpha, beta);
+                board.undo();
+                if (_aborted) {
+                    return 0;
+                }
+                if (currentMoveValue > value) {
+                    value = currentMoveValue;
+                    bestMove = moves[i];
+                    if (saveMove) {
+                        _lastFoundMove = bestMove;
+                    }
+                }
+                alpha = Math.max(alpha, value);
+                if (alpha >= beta) {
+                    _order.cutoff(moves[i], i, _rootDepth - depth, depth);
+                    break;
+                }
+            }
+            store(key, bestMove, value, depth, alphaOrig, betaOrig);
+            return value;
+        } else {
+            int value = INFINITY;
+            for (int i = 0; i < count; i++) {
+                board.makeMove(moves[i]);
+                int currentMoveValue = findMove(depth - 1, false, -sense, alpha, beta);
+                board.undo();
+                if (_aborted) {
+                    return 0;
+                }
+                if (currentMoveValue < value) {
+                    value = currentMoveValue;
+                    bestMove = moves[i];
+                    if (saveMove) {
+                        _lastFoundMove = bestMove;
+                    }
+                }
+                beta = Math.min(beta, value);
+                if (alpha >= beta) {
+                    _order.cutoff(moves[i], i, _rootDepth - depth, depth);
+                    break;
+                }
+            }
+            store(key, bestMove, value, depth, alphaOrig, betaOrig);
+            return value;
+        }
+    }
+
+    /**
+     * The body of findMove (with the same parameters) in split-ply mode,
+     * for a position with key KEY and table entry ENTRY (or MISS), not
+     * cut off by the table.  The queen move and the arrow are searched as
+     * two levels: the queen moves are ordered and tried first, and the
+     * arrows of each are generated only when it is reached.  Each queen
+     * move leads to a half-move position with its own table entry, whose
+     * bound from an earlier search may show that the queen move cannot
+     * change the value, or that it causes a cutoff, without generating
+     * its arrows.
+     */
+    private int findMoveByHalves(long key, long entry, int depth,
+                                 boolean saveMove, int sense,
+                                 int alpha, int beta) {
+        Board board = _board;
+        int alphaOrig = alpha, betaOrig = beta;
+        int ply = _rootDepth - depth;
+        int hashMove = saveMove ? _bestMove
+            : entry == TranspositionTable.MISS ? 0 : TranspositionTable.move(entry);
+        int[] queenMoves = _queenBuffers[depth];
+        int queenCount = board.generateQueenMoves(board.getTurn(), queenMoves, 0);
+        if (saveMove) {
+            rotate(queenMoves, queenCount, _rotation);
+            if (hashMove != 0) {
+                hashMoveFirst(queenMoves, queenCount, Move.pack(
+                    Move.fromIndex(hashMove), Move.toIndex(hashMove), 0));
+            }
+        } else {
+            _order.orderQueenMoves(queenMoves, queenCount, hashMove, ply);
+        }
+        int[] moves = _moveBuffers[depth];
+        int value = sense == 1 ? -INFINITY : INFINITY;
+        int bestMove = 0, tried = 0;
+    queens:
+        for (int q = 0; q < queenCount; q += 1) {
+            int from = Move.fromIndex(queenMoves[q]),
+                to = Move.toIndex(queenMoves[q]);
+            long halfKey = board.keyAfterQueenMove(from, to);
+            long half = _table.probe(halfKey);
+            _nodes += 1;
+            if (half != TranspositionTable.MISS && !saveMove
+                && TranspositionTable.depth(half) >= depth) {
+                int score = TranspositionTable.score(half);
+                int bound = TranspositionTable.bound(half);
+                if (bound == TranspositionTable.EXACT
+                    || bound == TranspositionTable.UPPER && score <= alpha
+                    || bound == TranspositionTable.LOWER && score >= beta) {
+                    if (sense * score > sense * value) {
+                        value = score;
+                        bestMove = TranspositionTable.move(half);
+                    }
+                    if (sense == 1) {
+                        alpha = Math.max(alpha, value);
+                    } else {
+                        beta = Math.min(beta, value);
+                    }
+                    if (alpha >= beta) {
+                        break;
+                    }
+                    continue;
+                }
+            }
+            int halfAlpha = alpha, halfBeta = beta;
+            int halfValue = sense == 1 ? -INFINITY : INFINITY, halfBest = 0;
+            int count = board.generateSpears(from, to, moves, 0);
+            _order.orderArrows(moves, count, half == TranspositionTable.MISS
+                               ? hashMove : TranspositionTable.move(half), ply);
+            for (int i = 0; i < count; i += 1) {
+                board.makeMove(moves[i]);
+                int currentMoveValue =
+                    findMove(depth - 1, false, -sense, alpha, beta);
+                board.undo();
+                if (_aborted) {
+                    return 0;
+                }
+                if (sense * currentMoveValue > sense * halfValue) {
+                    halfValue = currentMoveValue;
+                    halfBest = moves[i];
+                }
+                if (sense * currentMoveValue > sense * value) {
+                    value = currentMoveValue;
+                    bestMove = moves[i];
+                    if (saveMove) {
+                        _lastFoundMove = bestMove;
+                    }
+                }
+                if (sense == 1) {
+                    alpha = Math.max(alpha, value);
+                } else {
+                    beta = Math.min(beta, value);
+                }
+                if (alpha >= beta) {
+                    _order.cutoff(moves[i], tried, ply, depth);
+                    store(halfKey, halfBest, halfValue, depth,
+                          halfAlpha, halfBeta);
+                    break queens;
+                }
+                tried += 1;
+            }
+            store(halfKey, halfBest, halfValue, depth, halfAlpha, halfBeta);
+        }
+        store(key, bestMove, value, depth, alphaOrig, betaOrig);
+        return value;
+    }
+
+    /**
+     * Record in my transposition table that a DEPTH-ply search of the
+     * position with key KEY, with initial window ALPHA .. BETA, found
+     * VALUE with best move BESTMOVE (packed, or 0).
+     */
+    private void store(long key, int bestMove, int value, int depth,
+                       int alpha, int beta) {
+        int bound;
+        if (value <= alpha) {
+            bound = TranspositionTable.UPPER;
+        } else if (value >= beta) {
+            bound = TranspositionTable.LOWER;
+        } else {
+            bound = TranspositionTable.EXACT;
+        }
+        _table.store(key, bestMove, value, depth, bound);
+    }
+
+    /**
+     * If packed move HASHMOVE is among MOVES[0 .. COUNT-1], move it to
+     * the front so that it is searched first.
+     */
+    private static void hashMoveFirst(int[] moves, int count, int hashMove) {
+        for (int i = 1; i < count; i++) {
+            if (moves[i] == hashMove) {
+                moves[i] = moves[0];
+                moves[0] = hashMove;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Rotate MOVES[0 .. COUNT-1] left by K places.
+     */
+    private static void rotate(int[] moves, int count, int k) {
+        if (count == 0 || k % count == 0) {
+            return;
+        }
+        k %= count;
+        reverse(moves, 0, k);
+        reverse(moves, k, count);
+        reverse(moves, 0, count);
+    }
+
+    /**
+     * Reverse A[FROM .. TO-1].
+     */
+    private static void reverse(int[] a, int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    /**
+     * Results of searches, shared with other Searchers.
+     */
+    private final TranspositionTable _table;
+    /**
+     * Set to stop all Searchers sharing it.
+     */
+    private final AtomicBoolean _stop;
+    /**
+     * Scores leaves.
+     */
+    private final Evaluation _evaluation;
+    /**
+     * The board being searched.
+     */
+    private Board _board;
+    /**
+     * Move buffers for generateMoves, indexed by remaining search depth,
+     * so that no level of the search allocates.
+     */
+    private int[][] _moveBuffers = new int[0][];
+    /**
+     * Buffers for generateQueenMoves, indexed like _moveBuffers.
+     */
+    private int[][] _queenBuffers = new int[0][];
+    /**
+     * The number of queen moves _queenBuffers have room for (and so,
+     * times Board.MAX_REACH, the size of _moveBuffers): the largest
+     * Board.maxQueenMoves of the positions searched.
+     */
+    private int _queenMoves = Board.MAX_QUEEN_MOVES;
+    /**
+     * True iff searching in split-ply mode.
+     */
+    private boolean _splitPly;
+    /**
+     * Orders moves below the root.
+     */
+    private final MoveOrder _order = new MoveOrder();
+    /**
+     * The depth of the current iteration.
+     */
+    private int _rootDepth;
+    /**
+     * Places by which to rotate the moves at the root.
+     */
+    private int _rotation;
+    /**
+     * The move (packed) found by the current depth at the root.
+     */
+    private int _lastFoundMove;
+    /**
+     * The best move (packed) and value of the last completed depth.
+     */
+    private int _bestMove, _bestValue;
+    /**
+     * The last completed depth.
+     */
+    private int _completedDepth;
+    /**
+     * The time (System.nanoTime) at which the current search must stop,
+     * or 0 if it has no deadline.
+     */
+    private long _deadline;
+    /**
+     * True iff the current depth has been abandoned.
+     */
+    private boolean _aborted;
+    /**
+     * Nodes visited in the current run.
+     */
+    private long _nodes;
+}
@@ -0,0 +1,477 @@
+package amazons.ai;
+
+import amazons.Board;
+import amazons.Move;
+import amazons.Piece;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A headless match between two automated players, for measuring whether
+ * a change to the AI makes it stronger.  Usage:
+ *
+ * <pre>
+ *     java amazons.ai.Tournament GAMES PARALLEL PLAYER1 PLAYER2 [PLIES]
+ * </pre>
+ *
+ * <p>plays GAMES games between PLAYER1 and PLAYER2, PARALLEL (0 for one
+ * per available processor) at a time.  Each game has its own Board and
+ * players, and searches on one thread.  Games come in pairs: each pair
+ * starts from its own position reached by PLIES (default 4) random moves
+ * from the initial position, and the players swap colors between the two
+ * games of a pair, so that neither gains from the openings.  A player is
+ * described by a specification of the form KIND;KEY=VALUE;..., where
+ * KIND is ai or mcts and the keys are
+ * <ul>
+ * <li> for ai: depth (a fixed search depth, default 2), time (a
+ *      budget per move in milliseconds, overriding depth), eval (an
+ *      Evaluation specification) and split (split-ply search, on if
+ *      present);
+ * <li> for mcts: iterations (per move, default 2000), time (likewise)
+ *      and heavy (heavy playouts, on if present).
+ * </ul>
+ * For example, "ai;depth=2;eval=queen=4,mobility=1".  Prints each
+ * player's wins, the average depth its searches completed (ai only) and
+ * the positions (or playouts) it searched per second, and the Elo
+ * difference between the players with its 95% confidence interval.
+ */
+final class Tournament {
+
+    /**
+     * The normal deviate of a two-sided 95% confidence interval.
+     */
+    static final double Z95 = 1.96;
+
+    /**
+     * Not instantiable.
+     */
+    private Tournament() {
+    }
+
+    /**
+     * Play the tournament described above, as specified by ARGS.
+     */
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Usage: java amazons.ai.Tournament GAMES"
+                               + " PARALLEL PLAYER1 PLAYER2 [PLIES]");
+            System.exit(1);
+        }
+        int games = Integer.parseInt(args[0]);
+        int parallel = Integer.parseInt(args[1]);
+        if (parallel == 0) {
+            parallel = Runtime.getRuntime().availableProcessors();
+        }
+        Spec[] players = { new Spec(args[2]), new Spec(args[3]) };
+        int plies = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+
+        long start = System.nanoTime();
+        Standings standings = play(players, games, parallel, plies, 61);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d at a time, %.1f s%n", games,
+                          parallel, seconds);
+        System.out.printf("%-40s %8s %8s %8s %12s%n", "player", "wins",
+                          "score", "depth", "nodes/s");
+        for (int p = 0; p < 2; p += 1) {
+            System.out.printf("%-40s %8d %8.3f %8s %12.0f%n",
+                              players[p], standings.wins(p),
+                              standings.score(p),
+                              standings.moves(p) == 0
+                              || players[p]._mcts ? "-"
+                              : String.format("%.2f",
+                                              standings.averageDepth(p)),
+                              standings.nodesPerSecond(p));
+        }
+        int played = standings.games();
+        if (played == 0) {
+            return;
+        }
+        double[] interval = eloInterval(standings.wins(0), played);
+        System.out.printf("Elo of %s over %s: %+.0f (95%% CI %+.0f .. %+.0f)%n",
+                          players[0], players[1],
+                          elo(standings.score(0), played),
+                          interval[0], interval[1]);
+    }
+
+    /**
+     * Play GAMES games between PLAYERS[0] and PLAYERS[1], PARALLEL at a
+     * time, from openings of PLIES random moves chosen by seeds starting
+     * at SEED, and return the results.
+     */
+    static Standings play(Spec[] players, int games, int parallel, int plies,
+                          long seed) {
+        ExecutorService pool = Executors.newFixedThreadPool(parallel, r -> {
+            Thread t = new Thread(r, "amazons-tournament");
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<Game>> results = new ArrayList<>(games);
+        for (int g = 0; g < games; g += 1) {
+            boolean swapped = g % 2 == 1;
+            long gameSeed = seed + g / 2;
+            results.add(pool.submit(() ->
+                new Game(players, swapped, plies, gameSeed).play()));
+        }
+        Standings standings = new Standings();
+        try {
+            for (Future<Game> result : results) {
+                standings.add(result.get());
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException excp) {
+            throw new IllegalStateException(excp.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return standings;
+    }
+
+    /**
+     * Return the Elo rating difference implied by an expected score
+     * (fraction of games won) of SCORE.
+     */
+    static double elo(double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    /**
+     * Return elo(SCORE), with SCORE, a score over GAMES games, first
+     * limited to [0.5 / GAMES, 1 - 0.5 / GAMES], so that a clean sweep
+     * (or a bound past one) gives a large but finite difference.
+     */
+    static double elo(double score, int games) {
+        double least = 0.5 / games;
+        return elo(Math.max(least, Math.min(1 - least, score)));
+    }
+
+    /**
+     * Return the bounds of the 95% confidence interval of the Elo
+     * difference implied by WINS wins in GAMES games, using the normal
+     * approximation to the distribution of the score.  Scores are
+     * limited as for elo(SCORE, GAMES).
+     */
+    static double[] eloInterval(int wins, int games) {
+        double score = (double) wins / games;
+        double margin = Z95 * Math.sqrt(score * (1 - score) / games);
+        return new double[] {
+            elo(score - margin, games), elo(score + margin, games)
+        };
+    }
+
+    /**
+     * The description of a player.
+     */
+    static final class Spec {
+
+        /**
+         * The player described by SPEC (see Tournament).
+         */
+        Spec(String spec) {
+            _spec = spec;
+            String[] terms = spec.split(";");
+            String kind = terms[0].trim();
+            if (!kind.equals("ai") && !kind.equals("mcts")) {
+                throw new IllegalArgumentException("bad player kind: "
+                                                   + kind);
+            }
+            _mcts = kind.equals("mcts");
+            for (int i = 1; i < terms.length; i += 1) {
+                String term = terms[i].trim();
+                int eq = term.indexOf('=');
+                String key = eq < 0 ? term : term.substring(0, eq);
+                String value = eq < 0 ? null : term.substring(eq + 1);
+                try {
+                    if (key.equals("split") && value == null && !_mcts) {
+                        _split = true;
+                    } else if (key.equals("heavy") && value == null
+                               && _mcts) {
+                        _heavy = true;
+                    } else if (key.equals("eval") && value != null
+                               && !_mcts) {
+                        _evaluation = new Evaluation(value);
+                    } else if (key.equals("depth") && value != null
+                               && !_mcts) {
+                        _depth = Integer.parseInt(value);
+                    } else if (key.equals("iterations") && value != null
+                               && _mcts) {
+                        _iterations = Integer.parseInt(value);
+                    } else if (key.equals("time") && value != null) {
+                        _time = Long.parseLong(value);
+                    } else {
+                        throw new IllegalArgumentException(
+                            "bad player option: " + term);
+                    }
+                } catch (NumberFormatException excp) {
+                    throw new IllegalArgumentException("bad player option: "
+                                                       + term);
+                }
+            }
+        }
+
+        /**
+         * Return a new player as I describe.
+         */
+        Contender create() {
+            if (_mcts) {
+                MCTS mcts = new MCTS();
+                mcts.setHeavy(_heavy);
+                return new Contender() {
+                    @Override
+                    public Move move(Board board) {
+                        return mcts.findMove(board, _time, _iterations, 1);
+                    }
+
+                    @Override
+                    public int depth() {
+                        return 0;
+                    }
+
+                    @Override
+                    public long nodes() {
+                        return mcts.lastPlayouts();
+                    }
+                };
+            }
+            AI ai = new AI(AI.Engine.LAZY_SMP, _evaluation.copy());
+            ai.setSplitPly(_split);
+            int limit = _time > 0 ? TranspositionTable.MAX_DEPTH : _depth;
+            return new Contender() {
+                @Override
+                public Move move(Board board) {
+                    return ai.findMove(board, limit, _time, 1);
+                }
+
+                @Override
+                public int depth() {
+                    return ai.completedDepth();
+                }
+
+                @Override
+                public long nodes() {
+                    return ai.lastNodes();
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return _spec;
+        }
+
+        /**
+         * My specification.
+         */
+        private final String _spec;
+        /**
+         * True for an MCTS player, false for an AI.
+         */
+        private final boolean _mcts;
+        /**
+         * An AI's search depth.
+         */
+        private int _depth = 2;
+        /**
+         * An AI's evaluation.
+         */
+        private Evaluation _evaluation =
+            new Evaluation(Evaluation.DEFAULT_SPEC);
+        /**
+         * True iff an AI searches split-ply.
+         */
+        private boolean _split;
+        /**
+         * An MCTS player's iterations per move.
+         */
+        private int _iterations = 2000;
+        /**
+         * True iff an MCTS player plays out heavily.
+         */
+        private boolean _heavy;
+        /**
+         * Time per move in milliseconds, or 0 for none.
+         */
+        private long _time;
+    }
+
+    /**
+     * One player of one game.
+     */
+    interface Contender {
+
+        /**
+         * Return my move for the side to move on BOARD, which has one,
+         * leaving BOARD unchanged.
+         */
+        Move move(Board board);
+
+        /**
+         * Return the depth completed by my last search, or 0 if my
+         * searches have no depth.
+         */
+        int depth();
+
+        /**
+         * Return the number of positions (or playouts) my last search
+         * visited.
+         */
+        long nodes();
+    }
+
+    /**
+     * One game of a tournament, and its result.
+     */
+    static final class Game {
+
+        /**
+         * A game between new players described by PLAYERS, with
+         * PLAYERS[0] white unless SWAPPED, from an opening of PLIES random
+         * moves chosen by SEED.
+         */
+        Game(Spec[] players, boolean swapped, int plies, long seed) {
+            _players = players;
+            _swapped = swapped;
+            _plies = plies;
+            _seed = seed;
+        }
+
+        /**
+         * Play me out and return me.
+         */
+        Game play() {
+            Board board = SearchBenchmark.position(_plies, new Random(_seed));
+            Contender white = _players[_swapped ? 1 : 0].create(),
+                black = _players[_swapped ? 0 : 1].create();
+            while (board.winner() == Piece.EMPTY) {
+                int p = (board.getTurn() == Piece.WHITE) != _swapped ? 0 : 1;
+                Contender player = board.getTurn() == Piece.WHITE
+                    ? white : black;
+                long start = System.nanoTime();
+                Move move = player.move(board);
+                _nanos[p] += System.nanoTime() - start;
+                if (move == null || !board.isLegal(move)) {
+                    throw new IllegalStateException(_players[p]
+                                                    + " made illegal move "
+                                                    + move);
+                }
+                _moves[p] += 1;
+                _depths[p] += player.depth();
+                _nodes[p] += player.nodes();
+                board.makeMove(move);
+            }
+            _winner = (board.winner() == Piece.WHITE) != _swapped ? 0 : 1;
+            return this;
+        }
+
+        /**
+         * The players.
+         */
+        private final Spec[] _players;
+        /**
+         * True iff _players[1] is white.
+         */
+        private final boolean _swapped;
+        /**
+         * The length of the opening.
+         */
+        private final int _plies;
+        /**
+         * The seed of the opening.
+         */
+        private final long _seed;
+        /**
+         * The index in _players of the winner.
+         */
+        private int _winner;
+        /**
+         * By index in _players: the number of moves made, the sum of the
+         * depths of their searches, the positions searched, and the
+         * time spent searching in nanoseconds.
+         */
+        private final long[] _moves = new long[2], _depths = new long[2],
+            _nodes = new long[2], _nanos = new long[2];
+    }
+
+    /**
+     * The totals of the games of a tournament.
+     */
+    static final class Standings {
+
+        /**
+         * Add the results of GAME.
+         */
+        void add(Game game) {
+            _games += 1;
+            _wins[game._winner] += 1;
+            for (int p = 0; p < 2; p += 1) {
+                _moves[p] += game._moves[p];
+                _depths[p] += game._depths[p];
+                _nodes[p] += game._nodes[p];
+                _nanos[p] += game._nanos[p];
+            }
+        }
+
+        /**
+         * Return the number of games.
+         */
+        int games() {
+            return _games;
+        }
+
+        /**
+         * Return the number of games won by player P (0 or 1).
+         */
+        int wins(int p) {
+            return _wins[p];
+        }
+
+        /**
+         * Return the fraction of games won by player P.
+         */
+        double score(int p) {
+            return _games == 0 ? 0.0 : (double) _wins[p] / _games;
+        }
+
+        /**
+         * Return the number of moves made by player P.
+         */
+        long moves(int p) {
+            return _moves[p];
+        }
+
+        /**
+         * Return the average depth completed by player P's searches.
+         */
+        double averageDepth(int p) {
+            return _moves[p] == 0 ? 0.0 : (double) _depths[p] / _moves[p];
+        }
+
+        /**
+         * Return the number of positions player P searched per second of
+         * its thinking time.
+         */
+        double nodesPerSecond(int p) {
+            return _nanos[p] == 0 ? 0.0 : _nodes[p] * 1e9 / _nanos[p];
+        }
+
+        /**
+         * The number of games played.
+         */
+        private int _games;
+        /**
+         * Games won, by player.
+         */
+        private final int[] _wins = new int[2];
+        /**
+         * Totals over all games, as for Game.
+         */
+        private final long[] _moves = new long[2], _depths = new long[2],
+            _nodes = new long[2], _nanos = new long[2];
+    }
+}
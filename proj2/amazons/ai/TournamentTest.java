@@ -0,0 +1,63 @@
+package amazons.ai;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TournamentTest {
+
+    @Test
+    public void elo() {
+        assertEquals(0.0, Tournament.elo(0.5), 1e-9);
+        assertEquals(191, Tournament.elo(0.75), 1);
+        assertEquals(-191, Tournament.elo(0.25), 1);
+        double[] interval = Tournament.eloInterval(55, 100);
+        assertTrue(interval[0] < Tournament.elo(0.55));
+        assertTrue(interval[1] > Tournament.elo(0.55));
+        assertTrue(interval[0] < 0);
+
+        double sweep = Tournament.elo(1.0, 10);
+        assertEquals(Tournament.elo(0.95), sweep, 1e-9);
+        assertEquals(-sweep, Tournament.elo(0.0, 10), 1e-9);
+        interval = Tournament.eloInterval(10, 10);
+        assertEquals(sweep, interval[0], 1e-9);
+        assertEquals(sweep, interval[1], 1e-9);
+        interval = Tournament.eloInterval(9, 10);
+        assertTrue(Double.isFinite(interval[0]) && interval[1] == sweep);
+    }
+
+    @Test
+    public void specs() {
+        assertEquals("ai;depth=1;eval=queen=4,king=1",
+                     new Tournament.Spec("ai;depth=1;eval=queen=4,king=1")
+                         .toString());
+        new Tournament.Spec("mcts;iterations=10;heavy");
+        for (String bad : new String[] {
+            "minimax", "ai;heavy", "mcts;depth=2", "ai;depth=x",
+            "ai;eval=pawns=1"
+        }) {
+            try {
+                new Tournament.Spec(bad);
+                fail("accepted " + bad);
+            } catch (IllegalArgumentException excp) {
+                /* Expected. */
+            }
+        }
+    }
+
+    @Test
+    public void play() {
+        Tournament.Spec[] players = {
+            new Tournament.Spec("ai;depth=1"),
+            new Tournament.Spec("mcts;iterations=50")
+        };
+        Tournament.Standings standings =
+            Tournament.play(players, 4, 2, 60, 7);
+        assertEquals(4, standings.games());
+        assertEquals(4, standings.wins(0) + standings.wins(1));
+        assertTrue(standings.moves(0) > 0 && standings.moves(1) > 0);
+        assertEquals(1.0, standings.averageDepth(0), 1e-9);
+    }
+}
@@ -0,0 +1,140 @@
+package amazons.ai;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size table of search results keyed by Zobrist hash (see
+ * Board.key), safe to share among search threads without locks.
+ *
+ * <p>Entries live in a flat long[], two longs per entry: the key XORed
+ * with the data, and the data.  A probe accepts an entry only if the two
+ * XOR back to the probed key, so an entry torn by concurrent writes (one
+ * long from each writer) is simply treated as a miss (Hyatt and Mann's
+ * lockless hashing).  The data packs the best move (a packed Move, bits
+ * 0-20), the bound type (bits 21-22), the search depth (bits 23-28), the
+ * search generation (bits 29-31), and the score (bits 32-63).
+ *
+ * <p>Replacement is depth-preferred: a slot is overwritten by a result
+ * of at least its depth, or by any result once the slot's entry is from
+ * an earlier search (see newSearch).
+ */
+public final class TranspositionTable {
+
+    /**
+     * Bound types: the stored score is exact, a lower bound on the true
+     * value, or an upper bound on it.
+     */
+    public static final int EXACT = 1, LOWER = 2, UPPER = 3;
+    /**
+     * The value returned by probe when there is no entry for a key.
+     * Stored data is never 0, since the bound type is never 0.
+     */
+    public static final long MISS = 0;
+    /**
+     * The largest depth that can be stored.
+     */
+    public static final int MAX_DEPTH = 63;
+
+    /**
+     * A table with 2**LOGSIZE entries (16 bytes each).
+     */
+    public TranspositionTable(int logSize) {
+        _table = new long[2 << logSize];
+        _mask = (1 << logSize) - 1;
+    }
+
+    /**
+     * Return the data stored for KEY, or MISS if there is none.
+     */
+    public long probe(long key) {
+        int i = ((int) key & _mask) << 1;
+        long check = _table[i], data = _table[i + 1];
+        if ((check ^ data) != key || data == MISS) {
+            return MISS;
+        }
+        return data;
+    }
+
+    /**
+     * Record that a search of DEPTH plies from the position with key KEY
+     * found SCORE, a bound of type BOUND on its value, with best move
+     * MOVE (packed, or 0 if none), unless a deeper result from the
+     * current search occupies its slot.
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int i = ((int) key & _mask) << 1;
+        depth = Math.min(depth, MAX_DEPTH);
+        long old = _table[i + 1];
+        if (old != MISS && generation(old) == _generation
+                && depth(old) > depth && (_table[i] ^ old) != key) {
+            return;
+        }
+        long data = (long) score << 32 | (long) _generation << 29
+                | (long) depth << 23 | (long) bound << 21 | move;
+        _table[i] = key ^ data;
+        _table[i + 1] = data;
+    }
+
+    /**
+     * Start a new search: entries from earlier searches become
+     * replaceable regardless of depth.
+     */
+    public void newSearch() {
+        _generation = (_generation + 1) & 7;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        Arrays.fill(_table, 0);
+    }
+
+    /**
+     * Return the best move (packed, or 0) in DATA from probe.
+     */
+    public static int move(long data) {
+        return (int) data & 0x1fffff;
+    }
+
+    /**
+     * Return the bound type in DATA from probe.
+     */
+    public static int bound(long data) {
+        return (int) (data >>> 21) & 3;
+    }
+
+    /**
+     * Return the search depth in DATA from probe.
+     */
+    public static int depth(long data) {
+        return (int) (data >>> 23) & MAX_DEPTH;
+    }
+
+    /**
+     * Return the score in DATA from probe.
+     */
+    public static int score(long data) {
+        return (int) (data >>> 32);
+    }
+
+    /**
+     * Return the search generation in DATA from probe.
+     */
+    private static int generation(long data) {
+        return (int) (data >>> 29) & 7;
+    }
+
+    /**
+     * Entries: key ^ data followed by data.
+     */
+    private final long[] _table;
+    /**
+     * Mask selecting an entry index from a key.
+     */
+    private final int _mask;
+    /**
+     * Current search generation, modulo 8.
+     */
+    private volatile int _generation;
+}
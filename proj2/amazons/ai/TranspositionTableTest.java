@@ -0,0 +1,47 @@
+package amazons.ai;
+
+import amazons.Move;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void storeAndProbe() {
+        TranspositionTable table = new TranspositionTable(4);
+        int move = Move.pack(3, 33, 30);
+        table.store(0x1234_5678_9abcL, move, -4321, 5, TranspositionTable.LOWER);
+
+        long data = table.probe(0x1234_5678_9abcL);
+        assertEquals(move, TranspositionTable.move(data));
+        assertEquals(-4321, TranspositionTable.score(data));
+        assertEquals(5, TranspositionTable.depth(data));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+
+        assertEquals(TranspositionTable.MISS, table.probe(0x1234_5678_9abdL));
+        assertEquals(TranspositionTable.MISS, table.probe(0x1234_5678_9abcL + 16));
+    }
+
+    @Test
+    public void replacement() {
+        TranspositionTable table = new TranspositionTable(4);
+        long deep = 1, shallow = 17;
+        table.store(deep, 0, 10, 6, TranspositionTable.EXACT);
+        table.store(shallow, 0, 20, 2, TranspositionTable.EXACT);
+        assertEquals(10, TranspositionTable.score(table.probe(deep)));
+        assertEquals(TranspositionTable.MISS, table.probe(shallow));
+
+        table.store(deep, 0, 11, 1, TranspositionTable.UPPER);
+        assertEquals(11, TranspositionTable.score(table.probe(deep)));
+
+        table.store(deep, 0, 12, 6, TranspositionTable.EXACT);
+        table.newSearch();
+        table.store(shallow, 0, 20, 2, TranspositionTable.EXACT);
+        assertEquals(20, TranspositionTable.score(table.probe(shallow)));
+        assertEquals(TranspositionTable.MISS, table.probe(deep));
+
+        table.clear();
+        assertEquals(TranspositionTable.MISS, table.probe(shallow));
+    }
+}
@@ -0,0 +1,413 @@
+package amazons.ai;
+
+import amazons.Board;
+import amazons.Move;
+import amazons.Piece;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A Monte Carlo search tree, searched by UCT, for one thread.
+ *
+ * <p>Each iteration descends from the root, choosing at each expanded
+ * node the child with the greatest upper confidence bound
+ *     wins / visits + EXPLORATION * sqrt(ln(parent visits) / visits)
+ * (unvisited children first), expands the node it reaches if that node
+ * has been visited before, plays the game out from there, and credits
+ * the result to every node on the path.  A node's wins are those of the
+ * side that made the move leading to it.
+ *
+ * <p>Nodes are not objects.  Node N is described by element N of the
+ * parallel arrays _move, _first, _count, _visits and _wins, and the
+ * children of a node occupy consecutive indices, so a node costs 20
+ * bytes.  The root is always node 0.  Moving the root down the tree
+ * (advance) copies the subtree that survives into fresh arrays, so that
+ * a tree can be kept from move to move without its dead branches
+ * filling it.  Once the tree holds its maximum number of nodes, it stops
+ * expanding and just plays out from its leaves.
+ */
+final class UctTree {
+
+    /**
+     * The weight of the exploration term of the upper confidence bound.
+     */
+    static final double EXPLORATION = 0.7;
+    /**
+     * In a heavy playout, the number of random moves played before the
+     * position is judged by its territory.
+     */
+    static final int HEAVY_PLIES = 8;
+    /**
+     * The initial number of nodes allocated.
+     */
+    private static final int INITIAL_NODES = 1 << 16;
+
+    /**
+     * A tree of at most MAXNODES nodes (but always room for the root's
+     * children), whose playouts are heavy iff
+     * HEAVY and whose random choices are seeded by SEED.
+     */
+    UctTree(int maxNodes, boolean heavy, long seed) {
+        _maxNodes = Math.max(Board.MAX_MOVES + 1, maxNodes);
+        _heavy = heavy;
+        _random = new SplittableRandom(seed);
+        allocate(Math.min(INITIAL_NODES, _maxNodes));
+        clear();
+    }
+
+    /**
+     * Forget everything but an unexpanded root.
+     */
+    void clear() {
+        _size = 1;
+        _move[0] = 0;
+        _first[0] = _count[0] = _visits[0] = 0;
+        _wins[0] = 0;
+    }
+
+    /**
+     * Make the child of the root reached by packed MOVE the new root,
+     * keeping its subtree.  If the root has no such child (it has not
+     * been expanded), clear the tree instead.  Return true iff the
+     * subtree was kept.
+     */
+    boolean advance(int move) {
+        int child = -1;
+        for (int c = _first[0], end = c + _count[0]; c < end; c += 1) {
+            if (_move[c] == move) {
+                child = c;
+                break;
+            }
+        }
+        if (child < 0) {
+            clear();
+            return false;
+        }
+        compact(child);
+        return true;
+    }
+
+    /**
+     * Run iterations from BOARD, which is the position at my root, until
+     * ITERATIONS have run (if positive) or until System.nanoTime passes
+     * DEADLINE (if positive), whichever comes first.  The root is
+     * expanded first if the game is not over.  BOARD is restored on
+     * return.  Return the number of iterations run.
+     */
+    int search(Board board, int iterations, long deadline) {
+        _rootTurn = board.getTurn();
+        int queenMoves = Math.max(board.maxQueenMoves(Piece.WHITE),
+                                  board.maxQueenMoves(Piece.BLACK));
+        if (queenMoves > _queenMoves.length) {
+            _queenMoves = new int[queenMoves];
+            _moves = new int[queenMoves * Board.MAX_REACH];
+        }
+        if (_count[0] == 0 && board.winner() == Piece.EMPTY) {
+            expand(0, board);
+        }
+        int done = 0;
+        while (iterations <= 0 || done < iterations) {
+            if (deadline > 0 && (done & 63) == 0
+                && System.nanoTime() > deadline) {
+                break;
+            }
+            iterate(board);
+            done += 1;
+        }
+        return done;
+    }
+
+    /**
+     * Return the number of children of the root.
+     */
+    int rootChildren() {
+        return _count[0];
+    }
+
+    /**
+     * Return the move (packed) of the Kth child of the root.  The
+     * children of a root are always in the order of
+     * Board.generateMoves.
+     */
+    int rootMove(int k) {
+        return _move[_first[0] + k];
+    }
+
+    /**
+     * Return the number of visits to the Kth child of the root.
+     */
+    int rootVisits(int k) {
+        return _visits[_first[0] + k];
+    }
+
+    /**
+     * Return the fraction of the visits to the Kth child of the root that
+     * the side to move at the root won, or 0 if it has none.
+     */
+    double rootWinRate(int k) {
+        int c = _first[0] + k;
+        return _visits[c] == 0 ? 0.0 : _wins[c] / _visits[c];
+    }
+
+    /**
+     * Return the number of nodes in the tree.
+     */
+    int size() {
+        return _size;
+    }
+
+    /**
+     * Return the number of visits to the root.
+     */
+    int rootVisits() {
+        return _visits[0];
+    }
+
+    /**
+     * Run one iteration from BOARD, the position at the root, restoring
+     * it afterwards.
+     */
+    private void iterate(Board board) {
+        int node = 0, depth = 0;
+        _path[0] = 0;
+        while (_count[node] > 0) {
+            node = select(node);
+            board.makeMove(_move[node]);
+            depth += 1;
+            growPath(depth);
+            _path[depth] = node;
+        }
+        Piece winner = board.winner();
+        if (winner == Piece.EMPTY && _visits[node] > 0
+            && expand(node, board)) {
+            node = _first[node] + _random.nextInt(_count[node]);
+            board.makeMove(_move[node]);
+            depth += 1;
+            growPath(depth);
+            _path[depth] = node;
+            winner = board.winner();
+        }
+        if (winner == Piece.EMPTY) {
+            winner = playout(board);
+        }
+        Piece mover = depth % 2 == 1 ? _rootTurn : _rootTurn.opponent();
+        for (int d = depth; d >= 0; d -= 1) {
+            int n = _path[d];
+            _visits[n] += 1;
+            if (d > 0 && winner == mover) {
+                _wins[n] += 1;
+            }
+            mover = mover.opponent();
+        }
+        for (int d = 0; d < depth; d += 1) {
+            board.undo();
+        }
+    }
+
+    /**
+     * Return the child of expanded NODE with the greatest upper
+     * confidence bound.  Unvisited children come first, starting from a
+     * random one.
+     */
+    private int select(int node) {
+        int first = _first[node], count = _count[node];
+        int start = _random.nextInt(count);
+        for (int i = 0; i < count; i += 1) {
+            int c = first + (start + i) % count;
+            if (_visits[c] == 0) {
+                return c;
+            }
+        }
+        double logVisits = Math.log(_visits[node]);
+        int best = first;
+        double bestBound = Double.NEGATIVE_INFINITY;
+        for (int c = first, end = first + count; c < end; c += 1) {
+            double visits = _visits[c];
+            double bound = _wins[c] / visits
+                + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (bound > bestBound) {
+                bestBound = bound;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Add the children of NODE, the position on BOARD, which has a legal
+     * move.  Return false, leaving NODE a leaf, if there is not room for
+     * them.
+     */
+    private boolean expand(int node, Board board) {
+        int count = board.generateMoves(board.getTurn(), _moves);
+        if (_size + count > _maxNodes) {
+            return false;
+        }
+        if (_size + count > _move.length) {
+            grow(_size + count);
+        }
+        int first = _size;
+        System.arraycopy(_moves, 0, _move, first, count);
+        Arrays.fill(_first, first, first + count, 0);
+        Arrays.fill(_count, first, first + count, 0);
+        Arrays.fill(_visits, first, first + count, 0);
+        Arrays.fill(_wins, first, first + count, 0);
+        _first[node] = first;
+        _count[node] = count;
+        _size += count;
+        return true;
+    }
+
+    /**
+     * Play random moves from BOARD, whose game is not over, and return
+     * the winner, restoring BOARD afterwards.  Each move is a random
+     * queen move followed by a random spear for it, found without
+     * generating whole moves.  A light playout plays until the game
+     * ends.  A heavy one stops after HEAVY_PLIES moves, and the side with
+     * more queen-distance territory wins.  If neither has more, the side
+     * not to move wins: with equal room, the side to move runs out of
+     * moves first.
+     */
+    private Piece playout(Board board) {
+        Piece winner;
+        int plies = 0;
+        while ((winner = board.winner()) == Piece.EMPTY) {
+            if (_heavy && plies == HEAVY_PLIES) {
+                int territory = _evaluation.territory(board, true);
+                winner = territory > 0 ? Piece.WHITE
+                    : territory < 0 ? Piece.BLACK
+                    : board.getTurn().opponent();
+                break;
+            }
+            int queenMoves =
+                board.generateQueenMoves(board.getTurn(), _queenMoves, 0);
+            int queenMove = _queenMoves[_random.nextInt(queenMoves)];
+            int spears = board.generateSpears(Move.fromIndex(queenMove),
+                                              Move.toIndex(queenMove),
+                                              _moves, 0);
+            board.makeMove(_moves[_random.nextInt(spears)]);
+            plies += 1;
+        }
+        for (int p = 0; p < plies; p += 1) {
+            board.undo();
+        }
+        return winner;
+    }
+
+    /**
+     * Replace my nodes with copies of those in the subtree under ROOT,
+     * with ROOT as node 0.  The copy is breadth first, which keeps each
+     * node's children consecutive.
+     */
+    private void compact(int root) {
+        int[] move = _move, first = _first, count = _count, visits = _visits;
+        float[] wins = _wins;
+        int[] queue = new int[_size];
+        int head = 0, tail = 0;
+        queue[tail++] = root;
+        int size = 1;
+        while (head < tail) {
+            int n = queue[head++];
+            for (int c = first[n], end = c + count[n]; c < end; c += 1) {
+                queue[tail++] = c;
+            }
+            size += count[n];
+        }
+        allocate(Math.min(_maxNodes, Math.max(INITIAL_NODES, 2 * size)));
+        int next = 1;
+        for (int i = 0; i < tail; i += 1) {
+            int n = queue[i];
+            _move[i] = move[n];
+            _visits[i] = visits[n];
+            _wins[i] = wins[n];
+            _count[i] = count[n];
+            _first[i] = count[n] == 0 ? 0 : next;
+            next += count[n];
+        }
+        _size = size;
+    }
+
+    /**
+     * Replace my node arrays with new ones of length LENGTH.
+     */
+    private void allocate(int length) {
+        _move = new int[length];
+        _first = new int[length];
+        _count = new int[length];
+        _visits = new int[length];
+        _wins = new float[length];
+    }
+
+    /**
+     * Enlarge my node arrays, keeping their contents, to hold at least
+     * LENGTH nodes.
+     */
+    private void grow(int length) {
+        length = (int) Math.min(_maxNodes,
+                                Math.max(length, 2L * _move.length));
+        _move = Arrays.copyOf(_move, length);
+        _first = Arrays.copyOf(_first, length);
+        _count = Arrays.copyOf(_count, length);
+        _visits = Arrays.copyOf(_visits, length);
+        _wins = Arrays.copyOf(_wins, length);
+    }
+
+    /**
+     * Make sure that _path has room for index DEPTH.
+     */
+    private void growPath(int depth) {
+        if (depth >= _path.length) {
+            _path = Arrays.copyOf(_path, 2 * _path.length);
+        }
+    }
+
+    /**
+     * The most nodes I may hold.
+     */
+    private final int _maxNodes;
+    /**
+     * True iff my playouts are heavy.
+     */
+    private final boolean _heavy;
+    /**
+     * Source of my random choices.
+     */
+    private final SplittableRandom _random;
+    /**
+     * Judges the ends of heavy playouts.
+     */
+    private final Evaluation _evaluation = new Evaluation("queen=1");
+    /**
+     * The number of nodes in use.
+     */
+    private int _size;
+    /**
+     * By node: the move (packed) leading to it, the index of its first
+     * child, its number of children (0 if unexpanded), and its number of
+     * visits.
+     */
+    private int[] _move, _first, _count, _visits;
+    /**
+     * By node: the number of its visits won by the side that made its
+     * move.
+     */
+    private float[] _wins;
+    /**
+     * The side to move at the root during a search.
+     */
+    private Piece _rootTurn;
+    /**
+     * The nodes on the path of the current iteration, by depth.
+     */
+    private int[] _path = new int[128];
+    /**
+     * Scratch space for generating moves, enlarged by search for
+     * positions with more than four queens of a color.
+     */
+    private int[] _moves = new int[Board.MAX_MOVES];
+    /**
+     * Scratch space for generating queen moves, enlarged like _moves.
+     */
+    private int[] _queenMoves = new int[Board.MAX_QUEEN_MOVES];
+}
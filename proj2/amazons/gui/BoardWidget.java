@@ -190,7 +190,7 @@ class BoardWidget extends Pad {
         } else {
             Move mv = Move.mv(from, to, s);
 
-            if (_board.isLegal(mv)) {
+            if (mv != null && _board.isLegal(mv)) {
                 _commands.add(mv.toString());
             }
 
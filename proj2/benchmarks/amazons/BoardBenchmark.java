@@ -0,0 +1,107 @@
+package amazons;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the Board operations used by the search, on each of
+ * the Positions.  Run with "make bench" in proj2.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+    /**
+     * The name of the position benchmarked.
+     */
+    @Param({ Positions.OPENING, Positions.MIDDLEGAME, Positions.ENDGAME })
+    public String position;
+
+    /**
+     * The position benchmarked.
+     */
+    private Board _board;
+    /**
+     * A legal move on _board: the first one generated.
+     */
+    private Move _move;
+    /**
+     * Scratch space for generateMoves.
+     */
+    private final int[] _moves = new int[Board.MAX_MOVES];
+
+    /**
+     * Set up the position.
+     */
+    @Setup
+    public void setUp() {
+        _board = Positions.board(position);
+        if (_board.generateMoves(_board.getTurn(), _moves) == 0) {
+            throw new IllegalStateException("no moves in " + position);
+        }
+        _move = Move.mv(_moves[0]);
+    }
+
+    /**
+     * Make and undo a move.
+     */
+    @Benchmark
+    public Board makeMoveUndo() {
+        _board.makeMove(_move);
+        _board.undo();
+        return _board;
+    }
+
+    /**
+     * Iterate over all legal moves.
+     */
+    @Benchmark
+    public int legalMoves() {
+        int count = 0;
+        for (Iterator<Move> moves = _board.legalMoves(); moves.hasNext(); ) {
+            moves.next();
+            count += 1;
+        }
+        return count;
+    }
+
+    /**
+     * Generate all legal moves, packed.
+     */
+    @Benchmark
+    public int generateMoves() {
+        return _board.generateMoves(_board.getTurn(), _moves);
+    }
+
+    /**
+     * Check a legal move.
+     */
+    @Benchmark
+    public boolean isLegal() {
+        return _board.isLegal(_move);
+    }
+
+    /**
+     * Copy the board.
+     */
+    @Benchmark
+    public Board copy() {
+        return new Board(_board);
+    }
+}
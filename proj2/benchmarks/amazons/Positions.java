@@ -0,0 +1,79 @@
+package amazons;
+
+/**
+ * Positions for the benchmarks, in the format accepted by Board(String),
+ * white to move.
+ */
+public final class Positions {
+
+    /**
+     * The names of the positions, for use as a JMH parameter.
+     */
+    public static final String OPENING = "opening",
+        MIDDLEGAME = "middlegame", ENDGAME = "endgame";
+
+    /**
+     * The initial position.
+     */
+    private static final String OPENING_BOARD =
+            "   - - - B - - B - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   B - - - - - - - - B\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   W - - - - - - - - W\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - W - - W - - -\n";
+    /**
+     * A position after a few moves each.
+     */
+    private static final String MIDDLEGAME_BOARD =
+            "   - - - B - - B - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - S - - - - S - -\n" +
+            "   B - - - S - - - - -\n" +
+            "   - - - - - - S - - B\n" +
+            "   - - - W - - - - - -\n" +
+            "   W - - - - S - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - - - - -\n" +
+            "   - - - - - - W - - W\n";
+    /**
+     * A position late in the game, with most squares speared.
+     */
+    private static final String ENDGAME_BOARD =
+            "   S S - B S - B S - S\n" +
+            "   S - S S - S S - S -\n" +
+            "   - S S - S S - S S S\n" +
+            "   B S - S - S S - S B\n" +
+            "   S - S S S - S S - S\n" +
+            "   S S - W S S - S S -\n" +
+            "   W - S S - S - S - S\n" +
+            "   S S - S S - S - S S\n" +
+            "   - S S - S S S - S -\n" +
+            "   S - S S - S W S - W\n";
+
+    /**
+     * Not instantiable.
+     */
+    private Positions() {
+    }
+
+    /**
+     * Return a new Board holding the position named NAME.
+     */
+    public static Board board(String name) {
+        switch (name) {
+        case OPENING:
+            return new Board(OPENING_BOARD);
+        case MIDDLEGAME:
+            return new Board(MIDDLEGAME_BOARD);
+        case ENDGAME:
+            return new Board(ENDGAME_BOARD);
+        default:
+            throw new IllegalArgumentException("unknown position: " + name);
+        }
+    }
+}
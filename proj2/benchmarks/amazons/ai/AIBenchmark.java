@@ -0,0 +1,94 @@
+package amazons.ai;
+
+import amazons.Board;
+import amazons.Move;
+import amazons.Positions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the AI: its static evaluation, and an end-to-end
+ * fixed-depth search, on each of the Positions.  Run with "make bench"
+ * in proj2.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AIBenchmark {
+
+    /**
+     * The name of the position benchmarked.
+     */
+    @Param({ Positions.OPENING, Positions.MIDDLEGAME, Positions.ENDGAME })
+    public String position;
+    /**
+     * The depth of the findMove benchmark.
+     */
+    @Param({ "2" })
+    public int depth;
+
+    /**
+     * The position benchmarked.
+     */
+    private Board _board;
+
+    /**
+     * Set up the position.
+     */
+    @Setup
+    public void setUp() {
+        _board = Positions.board(position);
+    }
+
+    /**
+     * The AI for the searches, whose transposition table is allocated
+     * once and emptied before each search, outside the timed call.
+     */
+    @State(Scope.Thread)
+    public static class Searching {
+
+        /**
+         * The AI.
+         */
+        private final AI _ai = new AI();
+
+        /**
+         * Empty the AI's table (allocating it the first time).
+         */
+        @Setup(Level.Invocation)
+        public void clearTable() {
+            _ai.clearTable();
+        }
+    }
+
+    /**
+     * Score the position with the original heuristic.
+     */
+    @Benchmark
+    public int staticScore() {
+        return AI.staticScore(_board);
+    }
+
+    /**
+     * Search the position to a fixed depth on one thread.
+     */
+    @Benchmark
+    public Move findMove(Searching searching) {
+        return searching._ai.findMove(_board, depth, 0, 1);
+    }
+}